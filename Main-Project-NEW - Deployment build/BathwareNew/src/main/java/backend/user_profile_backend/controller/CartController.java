@@ -1,5 +1,8 @@
 package backend.user_profile_backend.controller;
 
+import backend.user_profile_backend.dto.CartContents;
+import backend.user_profile_backend.dto.CartOperation;
+import backend.user_profile_backend.dto.CartSummary;
 import backend.user_profile_backend.model.Cart;
 import backend.user_profile_backend.service.CartService;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -8,6 +11,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/cart")
@@ -36,6 +40,19 @@ public class CartController {
         }
     }
     
+    // Several add/set/remove operations for one user in one request; returns the resulting cart
+    @PostMapping("/batch")
+    public ResponseEntity<?> applyOperations(
+            @RequestParam Long userId,
+            @RequestBody List<CartOperation> operations) {
+        try {
+            CartContents cart = cartService.applyOperations(userId, operations);
+            return ResponseEntity.ok(cart);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+    
     @PutMapping("/update")
     public ResponseEntity<Cart> updateCartItemQuantity(
             @RequestParam Long userId,
@@ -70,6 +87,12 @@ public class CartController {
         return ResponseEntity.noContent().build();
     }
     
+    // Line count, unit count and exact value in one read
+    @GetMapping("/user/{userId}/summary")
+    public ResponseEntity<CartSummary> getCartSummary(@PathVariable Long userId) {
+        return ResponseEntity.ok(cartService.getCartSummary(userId));
+    }
+    
     @GetMapping("/user/{userId}/total-items")
     public ResponseEntity<Integer> getTotalItemsInCart(@PathVariable Long userId) {
         int totalItems = cartService.getTotalItemsInCart(userId);
@@ -88,6 +111,22 @@ public class CartController {
         return ResponseEntity.ok(count);
     }
     
+    @GetMapping("/write-behind/stats")
+    public ResponseEntity<Map<String, Long>> getCartStoreStats() {
+        return ResponseEntity.ok(cartService.getCartStoreStats());
+    }
+    
+    @GetMapping("/sweeper/stats")
+    public ResponseEntity<Map<String, Long>> getSweeperStats() {
+        return ResponseEntity.ok(cartService.getSweeperStats());
+    }
+    
+    // Runs an abandoned-cart sweep now instead of waiting for the schedule; returns lines deleted
+    @PostMapping("/sweeper/run")
+    public ResponseEntity<Long> sweepAbandonedCarts() {
+        return ResponseEntity.ok(cartService.sweepAbandonedCarts());
+    }
+    
     @GetMapping("/user/{userId}/product/{productId}/exists")
     public ResponseEntity<Boolean> isProductInCart(
             @PathVariable Long userId,
@@ -0,0 +1,106 @@
+package backend.user_profile_backend.controller;
+
+import backend.user_profile_backend.service.CatalogSnapshotCache;
+import backend.user_profile_backend.service.JsonSnapshot;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.WebRequest;
+
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.function.Supplier;
+
+// Writes pre-serialized catalog snapshots straight to the response body, answering
+// conditional GETs with 304 before the snapshot is even looked up
+final class CatalogResponses {
+
+    // Below this size gzip framing costs more than it saves
+    private static final int MIN_GZIP_BYTES = 1024;
+    private static final String GZIP_ETAG_SUFFIX = "-gz\"";
+
+    private CatalogResponses() {}
+
+    static ResponseEntity<byte[]> json(WebRequest request, CatalogSnapshotCache snapshots,
+                                       Supplier<JsonSnapshot> loader) {
+        String etag = snapshots.getEtag();
+        long lastModified = snapshots.getLastModified();
+        if (notModified(request, etag, lastModified)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(etag)
+                    .lastModified(lastModified)
+                    .cacheControl(CacheControl.noCache())
+                    .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                    .build();
+        }
+
+        JsonSnapshot snapshot = loader.get();
+        if (snapshot == null) {
+            return ResponseEntity.notFound().build();
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .lastModified(snapshot.getLastModified())
+                .cacheControl(CacheControl.noCache())
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING)) && snapshot.getJson().length >= MIN_GZIP_BYTES) {
+            // A strong ETag names exact bytes, so the compressed body gets its own tag
+            String gzipEtag = snapshot.getEtag().substring(0, snapshot.getEtag().length() - 1) + GZIP_ETAG_SUFFIX;
+            return response.eTag(gzipEtag)
+                    .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                    .body(snapshot.getGzip());
+        }
+        return response.eTag(snapshot.getEtag()).body(snapshot.getJson());
+    }
+
+    // If-None-Match wins over If-Modified-Since, as RFC 9110 requires
+    private static boolean notModified(WebRequest request, String etag, long lastModified) {
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            for (String tag : ifNoneMatch.split(",")) {
+                String candidate = tag.trim();
+                if (candidate.equals("*")) {
+                    return true;
+                }
+                if (candidate.startsWith("W/")) {
+                    candidate = candidate.substring(2);
+                }
+                if (candidate.endsWith(GZIP_ETAG_SUFFIX)) {
+                    candidate = candidate.substring(0, candidate.length() - GZIP_ETAG_SUFFIX.length()) + "\"";
+                }
+                if (candidate.equals(etag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        String ifModifiedSince = request.getHeader(HttpHeaders.IF_MODIFIED_SINCE);
+        if (ifModifiedSince != null) {
+            try {
+                long since = ZonedDateTime.parse(ifModifiedSince, DateTimeFormatter.RFC_1123_DATE_TIME)
+                        .toInstant().toEpochMilli();
+                return lastModified <= since;
+            } catch (DateTimeParseException e) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (parts[0].trim().equalsIgnoreCase("gzip")) {
+                return parts.length == 1 || !parts[1].trim().replace(" ", "").matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+}
@@ -1,11 +1,14 @@
 package backend.user_profile_backend.controller;
 
+import backend.user_profile_backend.dto.CategorySummary;
 import backend.user_profile_backend.model.Category;
+import backend.user_profile_backend.service.CatalogSnapshotCache;
 import backend.user_profile_backend.service.CategoryService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 import java.util.Optional;
@@ -18,17 +21,26 @@ public class CategoryController {
     @Autowired
     private CategoryService categoryService;
     
+    @Autowired
+    private CatalogSnapshotCache catalogSnapshotCache;
+    
     @GetMapping
-    public ResponseEntity<List<Category>> getAllCategories() {
-        List<Category> categories = categoryService.getAllCategories();
-        return ResponseEntity.ok(categories);
+    public ResponseEntity<byte[]> getAllCategories(
+            WebRequest request) {
+        return CatalogResponses.json(request, catalogSnapshotCache, () -> categoryService.getAllCategoriesSnapshot());
+    }
+    
+    // Active categories with their active product counts, served from memory
+    @GetMapping("/summary")
+    public ResponseEntity<List<CategorySummary>> getCategorySummaries() {
+        return ResponseEntity.ok(categoryService.getCategorySummaries());
     }
     
     @GetMapping("/{id}")
-    public ResponseEntity<Category> getCategoryById(@PathVariable Long id) {
-        Optional<Category> category = categoryService.getCategoryById(id);
-        return category.map(ResponseEntity::ok)
-                     .orElse(ResponseEntity.notFound().build());
+    public ResponseEntity<byte[]> getCategoryById(
+            @PathVariable Long id,
+            WebRequest request) {
+        return CatalogResponses.json(request, catalogSnapshotCache, () -> categoryService.getCategorySnapshot(id));
     }
     
     @GetMapping("/name/{name}")
@@ -2,6 +2,7 @@ package backend.user_profile_backend.controller;
 
 import backend.user_profile_backend.model.Cart;
 import backend.user_profile_backend.service.CheckoutService;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import java.util.List;
 
@@ -29,23 +30,36 @@ public class CheckoutController {
 
     // Add product to cart
     @PostMapping("/cart/add")
-    public Cart addToCart(@RequestParam Long userId,
-                          @RequestParam Long productId,
-                          @RequestParam Long quantity) {
-        return checkoutService.addToCart(userId, productId, quantity);
+    public ResponseEntity<?> addToCart(@RequestParam Long userId,
+                                       @RequestParam Long productId,
+                                       @RequestParam Long quantity) {
+        try {
+            return ResponseEntity.ok(checkoutService.addToCart(userId, productId, quantity));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
     }
 
     //Update cart item quantity
     @PutMapping("/cart/update/{cartId}")
-    public Cart updateCartQuantity(@PathVariable Long cartId,
-                                   @RequestParam Long quantity) {
-        return checkoutService.updateCartQuantity(cartId, quantity);
+    public ResponseEntity<?> updateCartQuantity(@PathVariable Long cartId,
+                                                @RequestParam Long quantity) {
+        try {
+            return ResponseEntity.ok(checkoutService.updateCartQuantity(cartId, quantity));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
     }
 
     //Delete a specific cart item
     @DeleteMapping("/cart/delete/{cartId}")
-    public void deleteCartItem(@PathVariable Long cartId) {
-        checkoutService.deleteCartItem(cartId);
+    public ResponseEntity<?> deleteCartItem(@PathVariable Long cartId) {
+        try {
+            checkoutService.deleteCartItem(cartId);
+            return ResponseEntity.ok().build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
     }
 
     // Clear a user's cart
@@ -3,6 +3,7 @@ package backend.user_profile_backend.controller;
 import backend.user_profile_backend.dto.OrderDto;
 import backend.user_profile_backend.repository.OrderRepository;
 import backend.user_profile_backend.service.AdminOrderService;
+import backend.user_profile_backend.service.IdempotencyStore;
 import backend.user_profile_backend.service.OrderService;
 import backend.user_profile_backend.model.Order;
 import org.springframework.http.ResponseEntity;
@@ -17,24 +18,32 @@ public class OrderController {
     private final OrderService orderService;
     private final OrderRepository orderRepository;
     private final AdminOrderService adminOrderService;
+    private final IdempotencyStore idempotencyStore;
 
-    public OrderController(OrderService orderService, OrderRepository orderRepository, AdminOrderService adminOrderService) {
+    public OrderController(OrderService orderService, OrderRepository orderRepository, AdminOrderService adminOrderService,
+                           IdempotencyStore idempotencyStore) {
         this.orderService = orderService;
         this.orderRepository = orderRepository;
         this.adminOrderService = adminOrderService;
+        this.idempotencyStore = idempotencyStore;
     }
 
     @PostMapping("/upload")
     public ResponseEntity<?> uploadPaymentSlip(
             @RequestParam("quotationId") Long quotationId,
-            @RequestParam("file") MultipartFile file
+            @RequestParam("file") MultipartFile file,
+            @RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey
     ) {
-        try {
-            Order order = orderService.createOrder(quotationId, file);
-            return ResponseEntity.ok(order);
-        } catch (Exception e) {
-            return ResponseEntity.status(500).body("Failed to upload payment slip: " + e.getMessage());
-        }
+        // A retried upload with the same key gets the stored order without storing the file again
+        String fingerprint = quotationId + "|" + file.getOriginalFilename() + "|" + file.getSize();
+        return idempotencyStore.execute("order-upload", idempotencyKey, fingerprint, () -> {
+            try {
+                Order order = orderService.createOrder(quotationId, file);
+                return ResponseEntity.ok(order);
+            } catch (Exception e) {
+                return ResponseEntity.status(500).body("Failed to upload payment slip: " + e.getMessage());
+            }
+        });
     }
 
     @GetMapping("/user/{userId}")
@@ -1,15 +1,35 @@
 package backend.user_profile_backend.controller;
 
+import backend.user_profile_backend.dto.CursorPage;
+import backend.user_profile_backend.dto.ProductBatchUpdateResult;
+import backend.user_profile_backend.dto.ProductFilterResult;
+import backend.user_profile_backend.dto.ProductImportResult;
+import backend.user_profile_backend.dto.ProductSuggestions;
+import backend.user_profile_backend.dto.ProductUpdateRequest;
+import backend.user_profile_backend.dto.ProductView;
 import backend.user_profile_backend.model.Product;
+import backend.user_profile_backend.service.CatalogSnapshotCache;
+import backend.user_profile_backend.service.JsonSnapshot;
+import backend.user_profile_backend.service.ProductBulkService;
 import backend.user_profile_backend.service.ProductService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.math.BigDecimal;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping("/products")
@@ -19,84 +39,190 @@ public class ProductController {
     @Autowired
     private ProductService productService;
     
+    @Autowired
+    private CatalogSnapshotCache catalogSnapshotCache;
+    
+    @Autowired
+    private ProductBulkService productBulkService;
+    
+    // The list endpoints below switch to keyset paging when size or cursor is given, and
+    // return card views unless ?view=detail asks for descriptions too
     @GetMapping
-    public ResponseEntity<List<Product>> getAllProducts() {
-        List<Product> products = productService.getAllProducts();
-        return ResponseEntity.ok(products);
+    public ResponseEntity<?> getAllProducts(
+            @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) String view,
+            WebRequest request) {
+        if (size != null || cursor != null) {
+            return paged(view, () -> productService.getProductsPage(cursor, size));
+        }
+        return snapshot(view, request, productView -> productService.getAllProductsSnapshot(productView));
     }
     
     @GetMapping("/{id}")
-    public ResponseEntity<Product> getProductById(@PathVariable Long id) {
-        Optional<Product> product = productService.getProductById(id);
-        return product.map(ResponseEntity::ok)
-                     .orElse(ResponseEntity.notFound().build());
+    public ResponseEntity<byte[]> getProductById(
+            @PathVariable Long id,
+            WebRequest request) {
+        return CatalogResponses.json(request, catalogSnapshotCache, () -> productService.getProductSnapshot(id));
     }
     
     @GetMapping("/category/{categoryId}")
-    public ResponseEntity<List<Product>> getProductsByCategory(@PathVariable Long categoryId) {
-        List<Product> products = productService.getProductsByCategory(categoryId);
-        return ResponseEntity.ok(products);
+    public ResponseEntity<?> getProductsByCategory(
+            @PathVariable Long categoryId,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) String view,
+            WebRequest request) {
+        if (size != null || cursor != null) {
+            return paged(view, () -> productService.getProductsByCategoryPage(categoryId, cursor, size));
+        }
+        return snapshot(view, request, productView -> productService.getProductsByCategorySnapshot(categoryId, productView));
     }
     
     @GetMapping("/search")
-    public ResponseEntity<List<Product>> searchProducts(@RequestParam String q) {
-        List<Product> products = productService.searchProducts(q);
-        return ResponseEntity.ok(products);
+    public ResponseEntity<?> searchProducts(
+            @RequestParam String q,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) String view) {
+        if (size != null || cursor != null) {
+            return paged(view, () -> productService.searchProductsPage(null, q, cursor, size));
+        }
+        return list(view, () -> productService.searchProducts(q));
+    }
+    
+    // Typeahead for the search box: matching words, categories and products for a typed prefix
+    @GetMapping("/suggest")
+    public ResponseEntity<ProductSuggestions> suggestProducts(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "5") int limit) {
+        return ResponseEntity.ok(productService.suggestProducts(q, limit));
+    }
+    
+    @GetMapping("/suggest/stats")
+    public ResponseEntity<Map<String, Long>> getSuggestStats() {
+        return ResponseEntity.ok(productService.getSuggestStats());
     }
     
     @GetMapping("/category/{categoryId}/search")
-    public ResponseEntity<List<Product>> searchProductsByCategory(
+    public ResponseEntity<?> searchProductsByCategory(
             @PathVariable Long categoryId, 
-            @RequestParam String q) {
-        List<Product> products = productService.searchProductsByCategory(categoryId, q);
-        return ResponseEntity.ok(products);
+            @RequestParam String q,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) String view) {
+        if (size != null || cursor != null) {
+            return paged(view, () -> productService.searchProductsPage(categoryId, q, cursor, size));
+        }
+        return list(view, () -> productService.searchProductsByCategory(categoryId, q));
     }
     
     @GetMapping("/price-range")
-    public ResponseEntity<List<Product>> getProductsByPriceRange(
+    public ResponseEntity<?> getProductsByPriceRange(
             @RequestParam BigDecimal minPrice, 
-            @RequestParam BigDecimal maxPrice) {
-        List<Product> products = productService.getProductsByPriceRange(minPrice, maxPrice);
-        return ResponseEntity.ok(products);
+            @RequestParam BigDecimal maxPrice,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) String view) {
+        if (size != null || cursor != null) {
+            return paged(view, () -> productService.getProductsByPriceRangePage(minPrice, maxPrice, cursor, size));
+        }
+        return list(view, () -> productService.getProductsByPriceRange(minPrice, maxPrice));
     }
     
     @GetMapping("/category/{categoryId}/price-range")
-    public ResponseEntity<List<Product>> getProductsByCategoryAndPriceRange(
+    public ResponseEntity<?> getProductsByCategoryAndPriceRange(
             @PathVariable Long categoryId,
             @RequestParam BigDecimal minPrice, 
-            @RequestParam BigDecimal maxPrice) {
-        List<Product> products = productService.getProductsByCategoryAndPriceRange(categoryId, minPrice, maxPrice);
-        return ResponseEntity.ok(products);
+            @RequestParam BigDecimal maxPrice,
+            @RequestParam(required = false) String view) {
+        return list(view, () -> productService.getProductsByCategoryAndPriceRange(categoryId, minPrice, maxPrice));
+    }
+    
+    // Any combination of facets, with per-facet counts for the sidebar
+    @GetMapping("/filter")
+    public ResponseEntity<?> filterProducts(
+            @RequestParam(required = false) Long categoryId,
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(required = false) Boolean inStock,
+            @RequestParam(required = false) Boolean discounted,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) String view) {
+        try {
+            ProductFilterResult result = productService.filterProducts(
+                    categoryId, minPrice, maxPrice, inStock, discounted, cursor, size, ProductView.parse(view));
+            return ResponseEntity.ok(result);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
     }
     
     @GetMapping("/top-rated")
-    public ResponseEntity<List<Product>> getTopRatedProducts(@RequestParam(defaultValue = "10") int limit) {
-        List<Product> products = productService.getTopRatedProducts(limit);
-        return ResponseEntity.ok(products);
+    public ResponseEntity<?> getTopRatedProducts(
+            @RequestParam(defaultValue = "10") int limit,
+            @RequestParam(required = false) String view) {
+        return list(view, () -> productService.getTopRatedProducts(limit));
     }
     
     @GetMapping("/latest")
-    public ResponseEntity<List<Product>> getLatestProducts(@RequestParam(defaultValue = "10") int limit) {
-        List<Product> products = productService.getLatestProducts(limit);
-        return ResponseEntity.ok(products);
+    public ResponseEntity<?> getLatestProducts(
+            @RequestParam(defaultValue = "10") int limit,
+            @RequestParam(required = false) String view) {
+        return list(view, () -> productService.getLatestProducts(limit));
     }
     
     @GetMapping("/discounted")
-    public ResponseEntity<List<Product>> getDiscountedProducts(@RequestParam(defaultValue = "10") int limit) {
-        List<Product> products = productService.getDiscountedProducts(limit);
-        return ResponseEntity.ok(products);
+    public ResponseEntity<?> getDiscountedProducts(
+            @RequestParam(defaultValue = "10") int limit,
+            @RequestParam(required = false) String view) {
+        return list(view, () -> productService.getDiscountedProducts(limit));
     }
     
     @GetMapping("/in-stock")
-    public ResponseEntity<List<Product>> getInStockProducts() {
-        List<Product> products = productService.getInStockProducts();
-        return ResponseEntity.ok(products);
+    public ResponseEntity<?> getInStockProducts(
+            @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) String view) {
+        if (size != null || cursor != null) {
+            return paged(view, () -> productService.getInStockProductsPage(cursor, size));
+        }
+        return list(view, () -> productService.getInStockProducts());
     }
     
+    // Without threshold, each product is checked against its category's configured threshold
     @GetMapping("/low-stock")
-    public ResponseEntity<List<Product>> getLowStockProducts(@RequestParam(defaultValue = "10") int threshold) {
-        List<Product> products = productService.getLowStockProducts(threshold);
-        return ResponseEntity.ok(products);
+    public ResponseEntity<?> getLowStockProducts(
+            @RequestParam(required = false) Integer threshold,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) String view) {
+        if (size != null || cursor != null) {
+            return paged(view, () -> productService.getLowStockProductsPage(threshold, cursor, size));
+        }
+        return list(view, () -> productService.getLowStockProducts(threshold));
+    }
+    
+    @GetMapping("/low-stock/thresholds")
+    public ResponseEntity<Map<String, Long>> getLowStockThresholds() {
+        return ResponseEntity.ok(productService.getLowStockThresholds());
+    }
+    
+    // Server-sent LowStockAlert events as products cross their threshold, in place of polling
+    @GetMapping(value = "/low-stock/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamLowStockAlerts() {
+        return productService.subscribeToLowStockAlerts();
+    }
+    
+    @GetMapping("/cache/stats")
+    public ResponseEntity<Map<String, Long>> getCatalogCacheStats() {
+        return ResponseEntity.ok(productService.getCatalogCacheStats());
+    }
+    
+    @GetMapping("/snapshots/stats")
+    public ResponseEntity<Map<String, Long>> getSnapshotStats() {
+        return ResponseEntity.ok(productService.getSnapshotStats());
     }
     
     @PostMapping
@@ -109,6 +235,49 @@ public class ProductController {
         }
     }
     
+    // Supplier sheets: CSV with a header row, or NDJSON (one product object per line)
+    @PostMapping("/import")
+    public ResponseEntity<?> importProducts(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam(required = false) String format) {
+        try (InputStream input = file.getInputStream()) {
+            ProductBulkService.Format importFormat = ProductBulkService.Format.of(format, file.getOriginalFilename());
+            ProductImportResult result = productBulkService.importProducts(input, importFormat);
+            return ResponseEntity.ok(result);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (IOException e) {
+            return ResponseEntity.status(500).body("Failed to read upload: " + e.getMessage());
+        }
+    }
+    
+    @GetMapping("/export")
+    public ResponseEntity<?> exportProducts(@RequestParam(defaultValue = "csv") String format) {
+        ProductBulkService.Format exportFormat;
+        try {
+            exportFormat = ProductBulkService.Format.of(format, null);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+        boolean csv = exportFormat == ProductBulkService.Format.CSV;
+        StreamingResponseBody body = output -> productBulkService.exportProducts(output, exportFormat);
+        return ResponseEntity.ok()
+                .contentType(csv ? MediaType.parseMediaType("text/csv") : MediaType.parseMediaType("application/x-ndjson"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"products." + (csv ? "csv" : "ndjson") + "\"")
+                .body(body);
+    }
+    
+    // Partial updates for many products at once, with one result per item
+    @PutMapping("/batch")
+    public ResponseEntity<?> updateProducts(@RequestBody List<ProductUpdateRequest> updates) {
+        try {
+            List<ProductBatchUpdateResult> results = productService.updateProducts(updates);
+            return ResponseEntity.ok(results);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+    
     @PutMapping("/{id}")
     public ResponseEntity<Product> updateProduct(@PathVariable Long id, @RequestBody Product productDetails) {
         try {
@@ -138,5 +307,34 @@ public class ProductController {
             return ResponseEntity.notFound().build();
         }
     }
+    
+    private ResponseEntity<?> list(String view, Supplier<List<Product>> products) {
+        try {
+            ProductView productView = ProductView.parse(view);
+            return ResponseEntity.ok(products.get().stream().map(productView::render).toList());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+    
+    private ResponseEntity<?> paged(String view, Supplier<CursorPage<Product>> page) {
+        try {
+            ProductView productView = ProductView.parse(view);
+            CursorPage<Product> rows = page.get();
+            return ResponseEntity.ok(new CursorPage<>(
+                    rows.getItems().stream().map(productView::render).toList(), rows.getNextCursor()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+    
+    private ResponseEntity<?> snapshot(String view, WebRequest request, Function<ProductView, JsonSnapshot> loader) {
+        ProductView productView;
+        try {
+            productView = ProductView.parse(view);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+        return CatalogResponses.json(request, catalogSnapshotCache, () -> loader.apply(productView));
+    }
 }
-
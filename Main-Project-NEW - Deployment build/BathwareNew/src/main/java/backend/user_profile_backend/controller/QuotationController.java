@@ -2,8 +2,11 @@ package backend.user_profile_backend.controller;
 
 import backend.user_profile_backend.service.AdminService;
 import backend.user_profile_backend.service.CheckoutService;
+import backend.user_profile_backend.service.IdempotencyStore;
 import backend.user_profile_backend.dto.QuotationDto;
 import backend.user_profile_backend.dto.QuotationRequestDto;
+import backend.user_profile_backend.dto.QuotationStatusResult;
+import backend.user_profile_backend.dto.QuotationStatusUpdate;
 import backend.user_profile_backend.model.Quotation;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -15,28 +18,37 @@ public class QuotationController {
 
     private final CheckoutService checkoutService;
     private final AdminService adminService;
+    private final IdempotencyStore idempotencyStore;
 
-    public QuotationController(CheckoutService checkoutService, AdminService adminService) {
+    public QuotationController(CheckoutService checkoutService, AdminService adminService,
+                               IdempotencyStore idempotencyStore) {
         this.checkoutService = checkoutService;
         this.adminService = adminService;
+        this.idempotencyStore = idempotencyStore;
     }
 
     // ------------------ Customer Request ------------------
     @PostMapping("/request")
-    public ResponseEntity<?> requestQuotation(@RequestBody QuotationRequestDto dto) {
-        try {
-            Quotation saved = checkoutService.createQuotation(
-                    dto.getUserId(),
-                    dto.getQname(),
-                    dto.getAddress(),
-                    dto.getQnumber()
-            );
-            return ResponseEntity.status(201).body(saved);
-        } catch (RuntimeException ex) {
-            return ResponseEntity.badRequest().body(ex.getMessage());
-        } catch (Exception ex) {
-            return ResponseEntity.status(500).body("Failed to create quotation: " + ex.getMessage());
-        }
+    public ResponseEntity<?> requestQuotation(@RequestBody QuotationRequestDto dto,
+                                              @RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey) {
+        // A retried request with the same key gets the first answer instead of a second quotation
+        String fingerprint = dto.getUserId() + "|" + dto.getQname() + "|" + dto.getAddress() + "|" + dto.getQnumber();
+        return idempotencyStore.execute("quotation-request", idempotencyKey, fingerprint, () -> {
+            try {
+                Quotation saved = checkoutService.createQuotation(
+                        dto.getUserId(),
+                        dto.getQname(),
+                        dto.getAddress(),
+                        dto.getQnumber()
+                );
+                return ResponseEntity.status(201).body(saved);
+            } catch (IllegalArgumentException ex) {
+                return ResponseEntity.badRequest().body(ex.getMessage());
+            } catch (Exception ex) {
+                // A 5xx is not kept, so a retry with the same key runs again once the database recovers
+                return ResponseEntity.status(500).body("Failed to create quotation: " + ex.getMessage());
+            }
+        });
     }
 
     // ------------------ Admin Endpoints ------------------
@@ -45,6 +57,29 @@ public class QuotationController {
         return ResponseEntity.ok(adminService.getAllQuotations());
     }
 
+    // Paged queue for the admin screen: summaries only, newest first
+    @GetMapping("/admin/queue")
+    public ResponseEntity<?> getQuotationQueue(@RequestParam(required = false) String status,
+                                               @RequestParam(required = false) String from,
+                                               @RequestParam(required = false) String to,
+                                               @RequestParam(required = false) String cursor,
+                                               @RequestParam(required = false) Integer size) {
+        try {
+            return ResponseEntity.ok(adminService.getQuotationQueue(status, from, to, cursor, size));
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().body(ex.getMessage());
+        }
+    }
+
+    @GetMapping("/admin/{id}")
+    public ResponseEntity<?> getQuotationDetail(@PathVariable Long id) {
+        try {
+            return ResponseEntity.ok(adminService.getQuotationDetail(id));
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.status(404).body(ex.getMessage());
+        }
+    }
+
     @PostMapping("/admin/{id}/approve")
     public ResponseEntity<?> approveQuotation(@PathVariable Long id) {
         try {
@@ -65,6 +100,18 @@ public class QuotationController {
         }
     }
 
+    // One status for many quotations, with an outcome per id
+    @PostMapping("/admin/status")
+    public ResponseEntity<?> updateQuotationStatuses(@RequestBody QuotationStatusUpdate update) {
+        try {
+            List<QuotationStatusResult> results =
+                    adminService.updateQuotationStatuses(update.getQuotationIds(), update.getStatus());
+            return ResponseEntity.ok(results);
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().body(ex.getMessage());
+        }
+    }
+
     // ------------------ Customer Approved Quotations ------------------
     @GetMapping("/customer/{userId}/approved")
     public ResponseEntity<List<QuotationDto>> getApprovedQuotationsForUser(@PathVariable Long userId) {
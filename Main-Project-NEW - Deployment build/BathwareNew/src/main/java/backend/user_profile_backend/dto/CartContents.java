@@ -0,0 +1,27 @@
+package backend.user_profile_backend.dto;
+
+import backend.user_profile_backend.model.Cart;
+
+import java.util.List;
+
+// The whole cart after a change: its lines, newest first, plus the totals
+public class CartContents extends CartSummary {
+    private List<Cart> items;
+
+    public CartContents() {}
+
+    public static CartContents of(Long userId, List<Cart> items) {
+        CartSummary totals = CartSummary.of(userId, items);
+        CartContents contents = new CartContents();
+        contents.setUserId(userId);
+        contents.setLineCount(totals.getLineCount());
+        contents.setTotalItems(totals.getTotalItems());
+        contents.setTotalValue(totals.getTotalValue());
+        contents.items = items;
+        return contents;
+    }
+
+    // Getters and Setters
+    public List<Cart> getItems() { return items; }
+    public void setItems(List<Cart> items) { this.items = items; }
+}
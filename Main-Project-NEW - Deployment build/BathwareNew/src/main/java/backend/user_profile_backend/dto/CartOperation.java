@@ -0,0 +1,33 @@
+package backend.user_profile_backend.dto;
+
+// One step of POST /cart/batch, applied in request order
+public class CartOperation {
+
+    public enum Type {
+        ADD, // add quantity to the line, creating it if needed
+        SET, // replace the line's quantity; 0 or less removes it
+        REMOVE // drop the line if it is there
+    }
+
+    private Type type;
+    private Long productId;
+    private Long quantity; // not used by REMOVE
+
+    public CartOperation() {}
+
+    public CartOperation(Type type, Long productId, Long quantity) {
+        this.type = type;
+        this.productId = productId;
+        this.quantity = quantity;
+    }
+
+    // Getters and Setters
+    public Type getType() { return type; }
+    public void setType(Type type) { this.type = type; }
+
+    public Long getProductId() { return productId; }
+    public void setProductId(Long productId) { this.productId = productId; }
+
+    public Long getQuantity() { return quantity; }
+    public void setQuantity(Long quantity) { this.quantity = quantity; }
+}
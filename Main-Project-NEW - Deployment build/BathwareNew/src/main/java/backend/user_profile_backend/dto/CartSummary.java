@@ -0,0 +1,46 @@
+package backend.user_profile_backend.dto;
+
+import backend.user_profile_backend.model.Cart;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+// Cart totals: distinct lines, units across all lines, and the exact value at current prices
+public class CartSummary {
+    private Long userId;
+    private long lineCount;
+    private long totalItems;
+    private BigDecimal totalValue;
+
+    public CartSummary() {}
+
+    public CartSummary(Long userId, long lineCount, long totalItems, BigDecimal totalValue) {
+        this.userId = userId;
+        this.lineCount = lineCount;
+        this.totalItems = totalItems;
+        this.totalValue = totalValue;
+    }
+
+    public static CartSummary of(Long userId, List<Cart> items) {
+        long totalItems = 0;
+        BigDecimal totalValue = BigDecimal.ZERO;
+        for (Cart item : items) {
+            totalItems += item.getQuantity();
+            totalValue = totalValue.add(item.getProduct().getPrice().multiply(BigDecimal.valueOf(item.getQuantity())));
+        }
+        return new CartSummary(userId, items.size(), totalItems, totalValue);
+    }
+
+    // Getters and Setters
+    public Long getUserId() { return userId; }
+    public void setUserId(Long userId) { this.userId = userId; }
+
+    public long getLineCount() { return lineCount; }
+    public void setLineCount(long lineCount) { this.lineCount = lineCount; }
+
+    public long getTotalItems() { return totalItems; }
+    public void setTotalItems(long totalItems) { this.totalItems = totalItems; }
+
+    public BigDecimal getTotalValue() { return totalValue; }
+    public void setTotalValue(BigDecimal totalValue) { this.totalValue = totalValue; }
+}
@@ -0,0 +1,21 @@
+package backend.user_profile_backend.dto;
+
+// The part of a category a product view needs, in place of the full Category entity
+public class CategoryRef {
+    private Long id;
+    private String name;
+
+    public CategoryRef() {}
+
+    public CategoryRef(Long id, String name) {
+        this.id = id;
+        this.name = name;
+    }
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+}
@@ -0,0 +1,31 @@
+package backend.user_profile_backend.dto;
+
+// One row of /categories/summary: the category with its active product count
+public class CategorySummary {
+    private Long id;
+    private String name;
+    private String description;
+    private long productCount;
+
+    public CategorySummary() {}
+
+    public CategorySummary(Long id, String name, String description, long productCount) {
+        this.id = id;
+        this.name = name;
+        this.description = description;
+        this.productCount = productCount;
+    }
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+
+    public String getDescription() { return description; }
+    public void setDescription(String description) { this.description = description; }
+
+    public long getProductCount() { return productCount; }
+    public void setProductCount(long productCount) { this.productCount = productCount; }
+}
@@ -0,0 +1,46 @@
+package backend.user_profile_backend.dto;
+
+// Pushed on /products/low-stock/stream when a product crosses its category's stock threshold
+public class LowStockAlert {
+    public static final String LOW = "LOW"; // fell to or below the threshold
+    public static final String RESTOCKED = "RESTOCKED"; // back above it
+    public static final String REMOVED = "REMOVED"; // was low, then deactivated or deleted
+
+    private Long productId;
+    private String productName;
+    private Long categoryId;
+    private Long stockQuantity;
+    private long threshold;
+    private String state;
+
+    public LowStockAlert() {}
+
+    public LowStockAlert(Long productId, String productName, Long categoryId, Long stockQuantity,
+                         long threshold, String state) {
+        this.productId = productId;
+        this.productName = productName;
+        this.categoryId = categoryId;
+        this.stockQuantity = stockQuantity;
+        this.threshold = threshold;
+        this.state = state;
+    }
+
+    // Getters and Setters
+    public Long getProductId() { return productId; }
+    public void setProductId(Long productId) { this.productId = productId; }
+
+    public String getProductName() { return productName; }
+    public void setProductName(String productName) { this.productName = productName; }
+
+    public Long getCategoryId() { return categoryId; }
+    public void setCategoryId(Long categoryId) { this.categoryId = categoryId; }
+
+    public Long getStockQuantity() { return stockQuantity; }
+    public void setStockQuantity(Long stockQuantity) { this.stockQuantity = stockQuantity; }
+
+    public long getThreshold() { return threshold; }
+    public void setThreshold(long threshold) { this.threshold = threshold; }
+
+    public String getState() { return state; }
+    public void setState(String state) { this.state = state; }
+}
@@ -0,0 +1,41 @@
+package backend.user_profile_backend.dto;
+
+import backend.user_profile_backend.model.Product;
+
+// Outcome of one item in PUT /products/batch, in request order
+public class ProductBatchUpdateResult {
+    private Long id;
+    private boolean updated;
+    private String error; // set when updated is false
+    private Product product; // saved state when updated is true
+
+    public ProductBatchUpdateResult() {}
+
+    public static ProductBatchUpdateResult updated(Product product) {
+        ProductBatchUpdateResult result = new ProductBatchUpdateResult();
+        result.id = product.getId();
+        result.updated = true;
+        result.product = product;
+        return result;
+    }
+
+    public static ProductBatchUpdateResult failed(Long id, String error) {
+        ProductBatchUpdateResult result = new ProductBatchUpdateResult();
+        result.id = id;
+        result.error = error;
+        return result;
+    }
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public boolean isUpdated() { return updated; }
+    public void setUpdated(boolean updated) { this.updated = updated; }
+
+    public String getError() { return error; }
+    public void setError(String error) { this.error = error; }
+
+    public Product getProduct() { return product; }
+    public void setProduct(Product product) { this.product = product; }
+}
@@ -0,0 +1,77 @@
+package backend.user_profile_backend.dto;
+
+import backend.user_profile_backend.model.Product;
+
+import java.math.BigDecimal;
+
+// What a product tile in a list shows: no description, audit timestamps or full category.
+// ProductRepository selects these columns directly with a constructor expression.
+public class ProductCard {
+    private Long id;
+    private String name;
+    private BigDecimal price;
+    private BigDecimal originalPrice;
+    private Long discountPercentage;
+    private String imageUrl;
+    private BigDecimal rating;
+    private Long reviewCount;
+    private Long stockQuantity;
+    private CategoryRef category;
+
+    public ProductCard() {}
+
+    public ProductCard(Long id, String name, BigDecimal price, BigDecimal originalPrice, Long discountPercentage,
+                       String imageUrl, BigDecimal rating, Long reviewCount, Long stockQuantity,
+                       Long categoryId, String categoryName) {
+        this.id = id;
+        this.name = name;
+        this.price = price;
+        this.originalPrice = originalPrice;
+        this.discountPercentage = discountPercentage;
+        this.imageUrl = imageUrl;
+        this.rating = rating;
+        this.reviewCount = reviewCount;
+        this.stockQuantity = stockQuantity;
+        this.category = categoryId != null ? new CategoryRef(categoryId, categoryName) : null;
+    }
+
+    // For products that are already in memory (indexes, caches)
+    public static ProductCard from(Product product) {
+        return new ProductCard(product.getId(), product.getName(), product.getPrice(), product.getOriginalPrice(),
+                product.getDiscountPercentage(), product.getImageUrl(), product.getRating(),
+                product.getReviewCount(), product.getStockQuantity(),
+                product.getCategory() != null ? product.getCategory().getId() : null,
+                product.getCategory() != null ? product.getCategory().getName() : null);
+    }
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+
+    public BigDecimal getPrice() { return price; }
+    public void setPrice(BigDecimal price) { this.price = price; }
+
+    public BigDecimal getOriginalPrice() { return originalPrice; }
+    public void setOriginalPrice(BigDecimal originalPrice) { this.originalPrice = originalPrice; }
+
+    public Long getDiscountPercentage() { return discountPercentage; }
+    public void setDiscountPercentage(Long discountPercentage) { this.discountPercentage = discountPercentage; }
+
+    public String getImageUrl() { return imageUrl; }
+    public void setImageUrl(String imageUrl) { this.imageUrl = imageUrl; }
+
+    public BigDecimal getRating() { return rating; }
+    public void setRating(BigDecimal rating) { this.rating = rating; }
+
+    public Long getReviewCount() { return reviewCount; }
+    public void setReviewCount(Long reviewCount) { this.reviewCount = reviewCount; }
+
+    public Long getStockQuantity() { return stockQuantity; }
+    public void setStockQuantity(Long stockQuantity) { this.stockQuantity = stockQuantity; }
+
+    public CategoryRef getCategory() { return category; }
+    public void setCategory(CategoryRef category) { this.category = category; }
+}
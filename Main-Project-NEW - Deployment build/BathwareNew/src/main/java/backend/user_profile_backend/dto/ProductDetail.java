@@ -0,0 +1,33 @@
+package backend.user_profile_backend.dto;
+
+import backend.user_profile_backend.model.Product;
+
+import java.math.BigDecimal;
+
+// The product page view: a card plus the description
+public class ProductDetail extends ProductCard {
+    private String description;
+
+    public ProductDetail() {}
+
+    public ProductDetail(Long id, String name, BigDecimal price, BigDecimal originalPrice, Long discountPercentage,
+                         String imageUrl, BigDecimal rating, Long reviewCount, Long stockQuantity,
+                         Long categoryId, String categoryName, String description) {
+        super(id, name, price, originalPrice, discountPercentage, imageUrl, rating, reviewCount, stockQuantity,
+                categoryId, categoryName);
+        this.description = description;
+    }
+
+    public static ProductDetail from(Product product) {
+        return new ProductDetail(product.getId(), product.getName(), product.getPrice(), product.getOriginalPrice(),
+                product.getDiscountPercentage(), product.getImageUrl(), product.getRating(),
+                product.getReviewCount(), product.getStockQuantity(),
+                product.getCategory() != null ? product.getCategory().getId() : null,
+                product.getCategory() != null ? product.getCategory().getName() : null,
+                product.getDescription());
+    }
+
+    // Getters and Setters
+    public String getDescription() { return description; }
+    public void setDescription(String description) { this.description = description; }
+}
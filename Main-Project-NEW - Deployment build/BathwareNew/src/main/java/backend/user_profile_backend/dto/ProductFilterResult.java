@@ -0,0 +1,38 @@
+package backend.user_profile_backend.dto;
+
+import java.util.List;
+import java.util.Map;
+
+public class ProductFilterResult {
+    private List<ProductCard> items;
+    private String nextCursor; // null on the last page
+    private int total; // all matches, not just this page
+
+    // Sidebar counts: each facet is counted with every other active filter applied
+    private Map<Long, Integer> categoryCounts;
+    private Map<String, Integer> priceRangeCounts;
+    private int inStockCount;
+    private int discountedCount;
+
+    // Getters and Setters
+    public List<ProductCard> getItems() { return items; }
+    public void setItems(List<ProductCard> items) { this.items = items; }
+
+    public String getNextCursor() { return nextCursor; }
+    public void setNextCursor(String nextCursor) { this.nextCursor = nextCursor; }
+
+    public int getTotal() { return total; }
+    public void setTotal(int total) { this.total = total; }
+
+    public Map<Long, Integer> getCategoryCounts() { return categoryCounts; }
+    public void setCategoryCounts(Map<Long, Integer> categoryCounts) { this.categoryCounts = categoryCounts; }
+
+    public Map<String, Integer> getPriceRangeCounts() { return priceRangeCounts; }
+    public void setPriceRangeCounts(Map<String, Integer> priceRangeCounts) { this.priceRangeCounts = priceRangeCounts; }
+
+    public int getInStockCount() { return inStockCount; }
+    public void setInStockCount(int inStockCount) { this.inStockCount = inStockCount; }
+
+    public int getDiscountedCount() { return discountedCount; }
+    public void setDiscountedCount(int discountedCount) { this.discountedCount = discountedCount; }
+}
@@ -0,0 +1,24 @@
+package backend.user_profile_backend.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ProductImportResult {
+    private long imported; // new products
+    private long updated; // rows whose id named an existing product
+    private long failed;
+    private List<ProductImportError> errors = new ArrayList<>(); // capped, failed has the full count
+
+    // Getters and Setters
+    public long getImported() { return imported; }
+    public void setImported(long imported) { this.imported = imported; }
+
+    public long getUpdated() { return updated; }
+    public void setUpdated(long updated) { this.updated = updated; }
+
+    public long getFailed() { return failed; }
+    public void setFailed(long failed) { this.failed = failed; }
+
+    public List<ProductImportError> getErrors() { return errors; }
+    public void setErrors(List<ProductImportError> errors) { this.errors = errors; }
+}
@@ -0,0 +1,28 @@
+package backend.user_profile_backend.dto;
+
+import java.util.List;
+
+// Typeahead result for /products/suggest, each group ranked on its own
+public class ProductSuggestions {
+    private List<String> terms; // most used catalog words first
+    private List<CategoryRef> categories; // most stocked categories first
+    private List<ProductCard> products; // best rated first, then most reviewed
+
+    public ProductSuggestions() {}
+
+    public ProductSuggestions(List<String> terms, List<CategoryRef> categories, List<ProductCard> products) {
+        this.terms = terms;
+        this.categories = categories;
+        this.products = products;
+    }
+
+    // Getters and Setters
+    public List<String> getTerms() { return terms; }
+    public void setTerms(List<String> terms) { this.terms = terms; }
+
+    public List<CategoryRef> getCategories() { return categories; }
+    public void setCategories(List<CategoryRef> categories) { this.categories = categories; }
+
+    public List<ProductCard> getProducts() { return products; }
+    public void setProducts(List<ProductCard> products) { this.products = products; }
+}
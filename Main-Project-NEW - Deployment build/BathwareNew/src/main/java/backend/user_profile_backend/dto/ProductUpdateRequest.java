@@ -0,0 +1,82 @@
+package backend.user_profile_backend.dto;
+
+import backend.user_profile_backend.model.Category;
+import backend.user_profile_backend.model.Product;
+
+import java.math.BigDecimal;
+
+// One item of PUT /products/batch. Every field except id is optional and null means unchanged;
+// unlike a Product body, omitted fields do not pick up the entity's defaults.
+public class ProductUpdateRequest {
+    private Long id;
+    private String name;
+    private String description;
+    private Long categoryId;
+    private BigDecimal price;
+    private BigDecimal originalPrice;
+    private Long discountPercentage;
+    private String imageUrl;
+    private BigDecimal rating;
+    private Long reviewCount;
+    private Long stockQuantity;
+    private Boolean isActive;
+
+    // The update as product details for ProductService, with unset fields left null
+    public Product toProductDetails() {
+        Product details = new Product();
+        details.setId(id);
+        details.setName(name);
+        details.setDescription(description);
+        if (categoryId != null) {
+            Category category = new Category();
+            category.setId(categoryId);
+            details.setCategory(category);
+        }
+        details.setPrice(price);
+        details.setOriginalPrice(originalPrice);
+        details.setDiscountPercentage(discountPercentage);
+        details.setImageUrl(imageUrl);
+        details.setRating(rating);
+        details.setReviewCount(reviewCount);
+        details.setStockQuantity(stockQuantity);
+        details.setIsActive(isActive);
+        return details;
+    }
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+
+    public String getDescription() { return description; }
+    public void setDescription(String description) { this.description = description; }
+
+    public Long getCategoryId() { return categoryId; }
+    public void setCategoryId(Long categoryId) { this.categoryId = categoryId; }
+
+    public BigDecimal getPrice() { return price; }
+    public void setPrice(BigDecimal price) { this.price = price; }
+
+    public BigDecimal getOriginalPrice() { return originalPrice; }
+    public void setOriginalPrice(BigDecimal originalPrice) { this.originalPrice = originalPrice; }
+
+    public Long getDiscountPercentage() { return discountPercentage; }
+    public void setDiscountPercentage(Long discountPercentage) { this.discountPercentage = discountPercentage; }
+
+    public String getImageUrl() { return imageUrl; }
+    public void setImageUrl(String imageUrl) { this.imageUrl = imageUrl; }
+
+    public BigDecimal getRating() { return rating; }
+    public void setRating(BigDecimal rating) { this.rating = rating; }
+
+    public Long getReviewCount() { return reviewCount; }
+    public void setReviewCount(Long reviewCount) { this.reviewCount = reviewCount; }
+
+    public Long getStockQuantity() { return stockQuantity; }
+    public void setStockQuantity(Long stockQuantity) { this.stockQuantity = stockQuantity; }
+
+    public Boolean getIsActive() { return isActive; }
+    public void setIsActive(Boolean isActive) { this.isActive = isActive; }
+}
@@ -0,0 +1,25 @@
+package backend.user_profile_backend.dto;
+
+import backend.user_profile_backend.model.Product;
+
+// The ?view= choices for product responses. List endpoints default to CARD.
+public enum ProductView {
+    CARD,
+    DETAIL;
+
+    public static ProductView parse(String view) {
+        if (view == null || view.isBlank()) {
+            return CARD;
+        }
+        for (ProductView candidate : values()) {
+            if (candidate.name().equalsIgnoreCase(view.trim())) {
+                return candidate;
+            }
+        }
+        throw new IllegalArgumentException("Unknown view: " + view);
+    }
+
+    public ProductCard render(Product product) {
+        return this == DETAIL ? ProductDetail.from(product) : ProductCard.from(product);
+    }
+}
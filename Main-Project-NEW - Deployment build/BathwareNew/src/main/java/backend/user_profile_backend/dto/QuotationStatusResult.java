@@ -0,0 +1,24 @@
+package backend.user_profile_backend.dto;
+
+// Outcome for one id of a bulk status change, in request order
+public class QuotationStatusResult {
+
+    public enum Outcome { UPDATED, UNCHANGED, NOT_FOUND }
+
+    private Long quotationId;
+    private Outcome outcome; // UNCHANGED: the quotation already had the status
+
+    public QuotationStatusResult() {}
+
+    public QuotationStatusResult(Long quotationId, Outcome outcome) {
+        this.quotationId = quotationId;
+        this.outcome = outcome;
+    }
+
+    // Getters and Setters
+    public Long getQuotationId() { return quotationId; }
+    public void setQuotationId(Long quotationId) { this.quotationId = quotationId; }
+
+    public Outcome getOutcome() { return outcome; }
+    public void setOutcome(Outcome outcome) { this.outcome = outcome; }
+}
@@ -0,0 +1,16 @@
+package backend.user_profile_backend.dto;
+
+import java.util.List;
+
+// Body of POST /checkout/quotation/admin/status: one status for every listed quotation
+public class QuotationStatusUpdate {
+    private String status;
+    private List<Long> quotationIds;
+
+    // Getters and Setters
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+
+    public List<Long> getQuotationIds() { return quotationIds; }
+    public void setQuotationIds(List<Long> quotationIds) { this.quotationIds = quotationIds; }
+}
@@ -0,0 +1,64 @@
+package backend.user_profile_backend.dto;
+
+import backend.user_profile_backend.model.Quotation;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+
+// A row of the admin quotation queue: no items, only their count and total quantity.
+// QuotationRepository selects these columns directly with a constructor expression.
+public class QuotationSummary {
+    private Long quotationId;
+    private Long customerId;
+    private String qname;
+    private String qnumber;
+    private String qstatus;
+    private Timestamp requestDate;
+    private BigDecimal totalPrice;
+    private long itemCount;
+    private long totalQuantity;
+
+    public QuotationSummary() {}
+
+    public QuotationSummary(Long quotationId, Long customerId, String qname, String qnumber,
+                            Quotation.QuotationStatus qstatus, Timestamp requestDate, BigDecimal totalPrice,
+                            Long itemCount, Long totalQuantity) {
+        this.quotationId = quotationId;
+        this.customerId = customerId;
+        this.qname = qname;
+        this.qnumber = qnumber;
+        this.qstatus = qstatus != null ? qstatus.name() : null;
+        this.requestDate = requestDate;
+        this.totalPrice = totalPrice;
+        this.itemCount = itemCount != null ? itemCount : 0;
+        this.totalQuantity = totalQuantity != null ? totalQuantity : 0;
+    }
+
+    // Getters and Setters
+    public Long getQuotationId() { return quotationId; }
+    public void setQuotationId(Long quotationId) { this.quotationId = quotationId; }
+
+    public Long getCustomerId() { return customerId; }
+    public void setCustomerId(Long customerId) { this.customerId = customerId; }
+
+    public String getQname() { return qname; }
+    public void setQname(String qname) { this.qname = qname; }
+
+    public String getQnumber() { return qnumber; }
+    public void setQnumber(String qnumber) { this.qnumber = qnumber; }
+
+    public String getQstatus() { return qstatus; }
+    public void setQstatus(String qstatus) { this.qstatus = qstatus; }
+
+    public Timestamp getRequestDate() { return requestDate; }
+    public void setRequestDate(Timestamp requestDate) { this.requestDate = requestDate; }
+
+    public BigDecimal getTotalPrice() { return totalPrice; }
+    public void setTotalPrice(BigDecimal totalPrice) { this.totalPrice = totalPrice; }
+
+    public long getItemCount() { return itemCount; }
+    public void setItemCount(long itemCount) { this.itemCount = itemCount; }
+
+    public long getTotalQuantity() { return totalQuantity; }
+    public void setTotalQuantity(long totalQuantity) { this.totalQuantity = totalQuantity; }
+}
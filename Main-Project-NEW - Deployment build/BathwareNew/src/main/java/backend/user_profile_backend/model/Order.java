@@ -6,7 +6,7 @@ import java.sql.Timestamp;
 
 
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = @Index(name = "idx_orders_quotation", columnList = "quotation_id"))
 public class Order {
 
     public enum PaymentStatus { PENDING, APPROVED, REJECTED }
@@ -6,7 +6,11 @@ import java.util.List;
 
 
 @Entity
-@Table(name = "quotation")
+@Table(name = "quotation", indexes = {
+        @Index(name = "idx_quotation_customer_status", columnList = "customer_id, qstatus"),
+        @Index(name = "idx_quotation_status_date", columnList = "qstatus, request_date, quotation_id"),
+        @Index(name = "idx_quotation_request_date", columnList = "request_date, quotation_id")
+})
 public class Quotation {
 
     public enum QuotationStatus { PENDING, APPROVED, REJECTED }
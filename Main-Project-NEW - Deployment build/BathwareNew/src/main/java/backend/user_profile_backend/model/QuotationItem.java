@@ -4,7 +4,7 @@ import jakarta.persistence.*;
 import java.math.BigDecimal;
 
 @Entity
-@Table(name = "quotation_items")
+@Table(name = "quotation_items", indexes = @Index(name = "idx_quotation_items_quotation", columnList = "quotation_id"))
 public class QuotationItem {
 
     @Id
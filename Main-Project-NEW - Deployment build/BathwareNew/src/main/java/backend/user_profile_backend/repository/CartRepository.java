@@ -9,11 +9,12 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface CartRepository extends JpaRepository<Cart, Long> {
+public interface CartRepository extends JpaRepository<Cart, Long>, CartRepositoryCustom {
 
     // Find all cart items for a user
     @Query("SELECT c FROM Cart c WHERE c.user.userId = :userId")
@@ -23,6 +24,14 @@ public interface CartRepository extends JpaRepository<Cart, Long> {
     @Query("SELECT c FROM Cart c WHERE c.user.userId = :userId ORDER BY c.createdAt DESC")
     List<Cart> findByUserIdOrderByCreatedAtDesc(@Param("userId") Long userId);
 
+    // Same, with each line's product fetched in the same query
+    @Query("SELECT c FROM Cart c JOIN FETCH c.product WHERE c.user.userId = :userId ORDER BY c.createdAt DESC")
+    List<Cart> findWithProductsByUserId(@Param("userId") Long userId);
+
+    // (productId, quantity) of the user's lines among the given products
+    @Query("SELECT c.product.id, c.quantity FROM Cart c WHERE c.user.userId = :userId AND c.product.id IN :productIds")
+    List<Object[]> findQuantities(@Param("userId") Long userId, @Param("productIds") Collection<Long> productIds);
+
     // Find a cart item by User and Product
     Optional<Cart> findByUserAndProduct(User user, Product product);
 
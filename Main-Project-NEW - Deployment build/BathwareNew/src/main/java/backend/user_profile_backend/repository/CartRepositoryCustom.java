@@ -0,0 +1,14 @@
+package backend.user_profile_backend.repository;
+
+import backend.user_profile_backend.model.Cart;
+
+import java.util.Optional;
+
+// Cart writes that need native SQL, implemented in CartRepositoryImpl
+public interface CartRepositoryCustom {
+
+    // Adds quantity to the user's line for the product, creating the line if there is none,
+    // in one statement. Empty when the product is missing or inactive, or its stock would not cover
+    // the line's new quantity.
+    Optional<Cart> upsertQuantity(Long userId, Long productId, long quantity);
+}
@@ -0,0 +1,112 @@
+package backend.user_profile_backend.repository;
+
+import backend.user_profile_backend.model.Cart;
+import backend.user_profile_backend.model.Product;
+import backend.user_profile_backend.model.User;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+// The upsert leans on the (user_id, product_id) unique key, so concurrent adds of the same
+// product serialize on that row instead of racing a read-then-insert into a constraint violation.
+// The product check rides along as the INSERT ... SELECT source: no matching product, no row.
+// Stock is checked against the quantity the line ends up with, not just the amount added.
+public class CartRepositoryImpl implements CartRepositoryCustom {
+
+    private static final String POSTGRES_UPSERT_SQL =
+            "INSERT INTO cart (user_id, product_id, quantity, created_at, updated_at) " +
+            "SELECT ?, p.id, ?, ?, ? FROM products p " +
+            "WHERE p.id = ? AND p.is_active = TRUE AND p.stock_quantity >= ? " +
+            "ON CONFLICT (user_id, product_id) DO UPDATE " +
+            "SET quantity = cart.quantity + EXCLUDED.quantity, updated_at = EXCLUDED.updated_at " +
+            "WHERE cart.quantity + EXCLUDED.quantity <= " +
+            "(SELECT s.stock_quantity FROM products s WHERE s.id = EXCLUDED.product_id) " +
+            "RETURNING id, quantity, created_at, updated_at";
+
+    // MySQL reports a guarded ON DUPLICATE KEY UPDATE that changed nothing as one row found,
+    // the same as an insert, so it adds to an existing line and inserts a new one separately
+    private static final String MYSQL_ADD_SQL =
+            "UPDATE cart c JOIN products p ON p.id = c.product_id " +
+            "SET c.quantity = c.quantity + ?, c.updated_at = ? " +
+            "WHERE c.user_id = ? AND c.product_id = ? AND p.is_active = TRUE AND c.quantity + ? <= p.stock_quantity";
+
+    private static final String MYSQL_INSERT_SQL =
+            "INSERT INTO cart (user_id, product_id, quantity, created_at, updated_at) " +
+            "SELECT ?, p.id, ?, ?, ? FROM products p " +
+            "WHERE p.id = ? AND p.is_active = TRUE AND p.stock_quantity >= ? " +
+            "AND NOT EXISTS (SELECT 1 FROM cart c WHERE c.user_id = ? AND c.product_id = ?)";
+
+    private static final String SELECT_LINE_SQL =
+            "SELECT id, quantity, created_at, updated_at FROM cart WHERE user_id = ? AND product_id = ?";
+
+    private static final RowMapper<Cart> LINE_MAPPER = (rs, rowNum) -> {
+        Cart cart = new Cart();
+        cart.setId(rs.getLong("id"));
+        cart.setQuantity(rs.getLong("quantity"));
+        Timestamp createdAt = rs.getTimestamp("created_at");
+        cart.setCreatedAt(createdAt != null ? createdAt.toLocalDateTime() : null);
+        Timestamp updatedAt = rs.getTimestamp("updated_at");
+        cart.setUpdatedAt(updatedAt != null ? updatedAt.toLocalDateTime() : null);
+        return cart;
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+    private volatile Boolean postgres;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public CartRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public Optional<Cart> upsertQuantity(Long userId, Long productId, long quantity) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Cart> rows;
+        if (isPostgres()) {
+            rows = jdbcTemplate.query(POSTGRES_UPSERT_SQL, LINE_MAPPER,
+                    userId, quantity, now, now, productId, quantity);
+        } else {
+            // MySQL has no RETURNING; the line is read back on the same connection and transaction
+            boolean written = addToLine(userId, productId, quantity, now);
+            if (!written) {
+                try {
+                    written = jdbcTemplate.update(MYSQL_INSERT_SQL, userId, quantity, now, now,
+                            productId, quantity, userId, productId) > 0;
+                } catch (DuplicateKeyException e) {
+                    // Another request created the line since the update above; add to it instead
+                    written = addToLine(userId, productId, quantity, now);
+                }
+            }
+            rows = written ? jdbcTemplate.query(SELECT_LINE_SQL, LINE_MAPPER, userId, productId) : List.of();
+        }
+        if (rows.isEmpty()) {
+            return Optional.empty();
+        }
+        Cart cart = rows.get(0);
+        cart.setUser(entityManager.getReference(User.class, userId));
+        cart.setProduct(entityManager.getReference(Product.class, productId));
+        return Optional.of(cart);
+    }
+
+    private boolean addToLine(Long userId, Long productId, long quantity, Timestamp now) {
+        return jdbcTemplate.update(MYSQL_ADD_SQL, quantity, now, userId, productId, quantity) > 0;
+    }
+
+    private boolean isPostgres() {
+        if (postgres == null) {
+            postgres = jdbcTemplate.execute((ConnectionCallback<Boolean>) con ->
+                    con.getMetaData().getDatabaseProductName().toLowerCase().contains("postgres"));
+        }
+        return postgres;
+    }
+}
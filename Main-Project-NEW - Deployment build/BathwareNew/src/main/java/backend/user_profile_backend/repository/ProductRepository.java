@@ -1,5 +1,7 @@
 package backend.user_profile_backend.repository;
 
+import backend.user_profile_backend.dto.ProductCard;
+import backend.user_profile_backend.dto.ProductDetail;
 import backend.user_profile_backend.model.Product;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -9,6 +11,7 @@ import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface ProductRepository extends JpaRepository<Product, Long> {
@@ -24,6 +27,12 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
            "LOWER(p.description) LIKE LOWER(CONCAT('%', :searchTerm, '%')))")
     List<Product> searchProducts(@Param("searchTerm") String searchTerm);
     
+    // Typeahead while ProductSuggestIndex loads: names containing the prefix, ranked like the index
+    @Query("SELECT p FROM Product p WHERE p.isActive = true AND " +
+           "LOWER(p.name) LIKE LOWER(CONCAT('%', :prefix, '%')) " +
+           "ORDER BY p.rating DESC, p.reviewCount DESC, p.id ASC")
+    List<Product> findSuggestions(@Param("prefix") String prefix, Pageable pageable);
+    
     @Query("SELECT p FROM Product p WHERE p.isActive = true AND " +
            "p.category.id = :categoryId AND " +
            "(LOWER(p.name) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
@@ -46,10 +55,89 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
     @Query("SELECT COUNT(p) FROM Product p WHERE p.category.id = :categoryId AND p.isActive = true")
     Long countByCategoryId(@Param("categoryId") Long categoryId);
     
+    // (productId, categoryId) pairs of the active catalog, for seeding CategoryRegistry counts
+    @Query("SELECT p.id, p.category.id FROM Product p WHERE p.isActive = true AND p.category IS NOT NULL")
+    List<Object[]> findActiveCategoryIds();
+    
+    // (categoryId, active product count) rows, for /categories/summary before CategoryRegistry is loaded
+    @Query("SELECT p.category.id, COUNT(p) FROM Product p WHERE p.isActive = true AND p.category IS NOT NULL " +
+           "GROUP BY p.category.id")
+    List<Object[]> countActiveByCategory();
+    
     @Query("SELECT p FROM Product p WHERE p.isActive = true AND p.stockQuantity > 0")
     List<Product> findInStockProducts();
     
     @Query("SELECT p FROM Product p WHERE p.isActive = true AND p.stockQuantity <= :threshold")
     List<Product> findLowStockProducts(@Param("threshold") Integer threshold);
-}
 
+    // Keyset (seek) pages: each returns the rows after the given key, the Pageable only supplies the LIMIT
+    @Query("SELECT p FROM Product p WHERE p.isActive = true AND p.id > :afterId ORDER BY p.id ASC")
+    List<Product> findActiveAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("SELECT p FROM Product p WHERE p.isActive = true AND p.category.id = :categoryId " +
+           "AND p.id > :afterId ORDER BY p.id ASC")
+    List<Product> findActiveByCategoryAfter(@Param("categoryId") Long categoryId, @Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("SELECT p FROM Product p WHERE p.isActive = true AND p.stockQuantity > 0 " +
+           "AND p.id > :afterId ORDER BY p.id ASC")
+    List<Product> findInStockAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("SELECT p FROM Product p WHERE p.isActive = true AND p.price BETWEEN :minPrice AND :maxPrice " +
+           "AND (p.price > :afterPrice OR (p.price = :afterPrice AND p.id > :afterId)) " +
+           "ORDER BY p.price ASC, p.id ASC")
+    List<Product> findByPriceRangeAfter(@Param("minPrice") BigDecimal minPrice, @Param("maxPrice") BigDecimal maxPrice,
+                                        @Param("afterPrice") BigDecimal afterPrice, @Param("afterId") Long afterId,
+                                        Pageable pageable);
+
+    @Query("SELECT p FROM Product p WHERE p.isActive = true AND p.stockQuantity <= :threshold " +
+           "AND (p.stockQuantity > :afterStock OR (p.stockQuantity = :afterStock AND p.id > :afterId)) " +
+           "ORDER BY p.stockQuantity ASC, p.id ASC")
+    List<Product> findLowStockAfter(@Param("threshold") Long threshold, @Param("afterStock") Long afterStock,
+                                    @Param("afterId") Long afterId, Pageable pageable);
+
+    // Facet filter straight from the database, used while ProductFacetIndex loads. Each any* flag
+    // switches its filter off, so no parameter is ever bound as null.
+    String FACET_FILTER = "p.isActive = true " +
+            "AND (:anyCategory = true OR p.category.id = :categoryId) " +
+            "AND (:anyMinPrice = true OR p.price >= :minPrice) " +
+            "AND (:anyMaxPrice = true OR p.price <= :maxPrice) " +
+            "AND (:anyStock = true OR p.stockQuantity > 0) " +
+            "AND (:anyDiscount = true OR p.discountPercentage > 0)";
+
+    @Query("SELECT p FROM Product p WHERE " + FACET_FILTER + " AND p.id > :afterId ORDER BY p.id ASC")
+    List<Product> findFacetMatchesAfter(@Param("anyCategory") boolean anyCategory, @Param("categoryId") Long categoryId,
+                                        @Param("anyMinPrice") boolean anyMinPrice, @Param("minPrice") BigDecimal minPrice,
+                                        @Param("anyMaxPrice") boolean anyMaxPrice, @Param("maxPrice") BigDecimal maxPrice,
+                                        @Param("anyStock") boolean anyStock, @Param("anyDiscount") boolean anyDiscount,
+                                        @Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("SELECT COUNT(p) FROM Product p WHERE " + FACET_FILTER)
+    long countFacetMatches(@Param("anyCategory") boolean anyCategory, @Param("categoryId") Long categoryId,
+                           @Param("anyMinPrice") boolean anyMinPrice, @Param("minPrice") BigDecimal minPrice,
+                           @Param("anyMaxPrice") boolean anyMaxPrice, @Param("maxPrice") BigDecimal maxPrice,
+                           @Param("anyStock") boolean anyStock, @Param("anyDiscount") boolean anyDiscount);
+
+    // Projections: only the columns a view shows, with the category name joined in, and no entities loaded
+    String CARD_COLUMNS = "p.id, p.name, p.price, p.originalPrice, p.discountPercentage, p.imageUrl, " +
+                          "p.rating, p.reviewCount, p.stockQuantity, c.id, c.name";
+
+    @Query("SELECT new backend.user_profile_backend.dto.ProductCard(" + CARD_COLUMNS + ") " +
+           "FROM Product p JOIN p.category c WHERE p.isActive = true")
+    List<ProductCard> findActiveCards();
+
+    @Query("SELECT new backend.user_profile_backend.dto.ProductCard(" + CARD_COLUMNS + ") " +
+           "FROM Product p JOIN p.category c WHERE p.isActive = true AND c.id = :categoryId")
+    List<ProductCard> findActiveCardsByCategory(@Param("categoryId") Long categoryId);
+
+    @Query("SELECT new backend.user_profile_backend.dto.ProductDetail(" + CARD_COLUMNS + ", p.description) " +
+           "FROM Product p JOIN p.category c WHERE p.isActive = true")
+    List<ProductDetail> findActiveDetails();
+
+    @Query("SELECT new backend.user_profile_backend.dto.ProductDetail(" + CARD_COLUMNS + ", p.description) " +
+           "FROM Product p JOIN p.category c WHERE p.isActive = true AND c.id = :categoryId")
+    List<ProductDetail> findActiveDetailsByCategory(@Param("categoryId") Long categoryId);
+
+    @Query("SELECT new backend.user_profile_backend.dto.ProductDetail(" + CARD_COLUMNS + ", p.description) " +
+           "FROM Product p JOIN p.category c WHERE p.id = :id")
+    Optional<ProductDetail> findDetailById(@Param("id") Long id);
+}
@@ -1,10 +1,65 @@
 package backend.user_profile_backend.repository;
 
+import backend.user_profile_backend.dto.QuotationSummary;
 import backend.user_profile_backend.model.Quotation;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
-public interface QuotationRepository extends JpaRepository<Quotation, Long> {
+public interface QuotationRepository extends JpaRepository<Quotation, Long>, QuotationRepositoryCustom {
 
     List<Quotation> findByCustomerUserIdAndQstatus(Long userId, Quotation.QuotationStatus qstatus);
+
+    // The user's quotations in a status that no order points at yet, with items and products.
+    // Order is named by its class because ORDER is a keyword in JPQL.
+    @Query("SELECT DISTINCT q FROM Quotation q LEFT JOIN FETCH q.items i LEFT JOIN FETCH i.product " +
+           "WHERE q.customer.userId = :userId AND q.qstatus = :status " +
+           "AND NOT EXISTS (SELECT 1 FROM backend.user_profile_backend.model.Order o WHERE o.quotation = q) " +
+           "ORDER BY q.quotationId")
+    List<Quotation> findWithoutOrderByCustomerAndStatus(@Param("userId") Long userId,
+                                                        @Param("status") Quotation.QuotationStatus status);
+
+    @Query("SELECT SUM(i.price * i.quantity) FROM QuotationItem i WHERE i.quotation.quotationId = :quotationId")
+    BigDecimal sumItemTotals(@Param("quotationId") Long quotationId);
+
+    // Admin queue, newest first: the rows after (afterDate, afterId) in the given statuses with
+    // from <= requestDate < to. Item figures are subqueries, so only the page's rows are counted;
+    // the Pageable only supplies the LIMIT.
+    @Query("SELECT new backend.user_profile_backend.dto.QuotationSummary(q.quotationId, q.customer.userId, " +
+           "q.qname, q.qnumber, q.qstatus, q.requestDate, q.totalPrice, " +
+           "(SELECT COUNT(i) FROM QuotationItem i WHERE i.quotation = q), " +
+           "(SELECT SUM(i.quantity) FROM QuotationItem i WHERE i.quotation = q)) " +
+           "FROM Quotation q WHERE q.qstatus IN :statuses " +
+           "AND q.requestDate >= :from AND q.requestDate < :to " +
+           "AND (q.requestDate < :afterDate OR (q.requestDate = :afterDate AND q.quotationId < :afterId)) " +
+           "ORDER BY q.requestDate DESC, q.quotationId DESC")
+    List<QuotationSummary> findSummariesBefore(@Param("statuses") Collection<Quotation.QuotationStatus> statuses,
+                                               @Param("from") Timestamp from, @Param("to") Timestamp to,
+                                               @Param("afterDate") Timestamp afterDate, @Param("afterId") Long afterId,
+                                               Pageable pageable);
+
+    @Query("SELECT q FROM Quotation q LEFT JOIN FETCH q.items i LEFT JOIN FETCH i.product WHERE q.quotationId = :id")
+    Optional<Quotation> findWithItemsById(@Param("id") Long id);
+
+    @Query("SELECT q FROM Quotation q JOIN FETCH q.customer WHERE q.quotationId IN :ids")
+    List<Quotation> findWithCustomerByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Id and current status name of each listed quotation that exists. The rows stay locked until
+    // the transaction ends, so a concurrent status change waits and then reads this one's result;
+    // locking in id order keeps two overlapping batches from deadlocking.
+    @Query(value = "SELECT quotation_id, qstatus FROM quotation WHERE quotation_id IN (:ids) " +
+            "ORDER BY quotation_id FOR UPDATE", nativeQuery = true)
+    List<Object[]> lockStatuses(@Param("ids") Collection<Long> ids);
+
+    // The status test keeps a quotation changed concurrently to the same status from counting twice
+    @Modifying
+    @Query("UPDATE Quotation q SET q.qstatus = :status WHERE q.quotationId IN :ids AND q.qstatus <> :status")
+    int updateStatus(@Param("ids") Collection<Long> ids, @Param("status") Quotation.QuotationStatus status);
 }
@@ -0,0 +1,9 @@
+package backend.user_profile_backend.repository;
+
+// Quotation writes that need native SQL, implemented in QuotationRepositoryImpl
+public interface QuotationRepositoryCustom {
+
+    // Moves every line of the user's cart into the quotation as an item priced at the product's
+    // current price, and empties the cart. Returns the number of items created.
+    int moveCartToQuotation(Long userId, Long quotationId);
+}
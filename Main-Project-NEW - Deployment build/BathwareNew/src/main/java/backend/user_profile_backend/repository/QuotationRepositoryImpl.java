@@ -0,0 +1,51 @@
+package backend.user_profile_backend.repository;
+
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+// A quotation is built from the cart in set-based statements, however many lines it has.
+// PostgreSQL deletes the lines and inserts the items from what was deleted in one statement,
+// so a line added meanwhile either moves or stays in the cart. MySQL has no DELETE ... RETURNING;
+// its INSERT ... SELECT takes shared locks on the lines it reads (and on the gaps between them
+// under the default REPEATABLE READ), so the delete that follows removes exactly those lines.
+public class QuotationRepositoryImpl implements QuotationRepositoryCustom {
+
+    private static final String POSTGRES_MOVE_SQL =
+            "WITH moved AS (DELETE FROM cart WHERE user_id = ? RETURNING product_id, quantity) " +
+            "INSERT INTO quotation_items (quotation_id, product_id, quantity, price) " +
+            "SELECT ?, m.product_id, m.quantity, p.price FROM moved m JOIN products p ON p.id = m.product_id";
+
+    private static final String MYSQL_COPY_SQL =
+            "INSERT INTO quotation_items (quotation_id, product_id, quantity, price) " +
+            "SELECT ?, c.product_id, c.quantity, p.price FROM cart c JOIN products p ON p.id = c.product_id " +
+            "WHERE c.user_id = ? ORDER BY c.id";
+
+    private static final String MYSQL_CLEAR_SQL = "DELETE FROM cart WHERE user_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private volatile Boolean postgres;
+
+    public QuotationRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public int moveCartToQuotation(Long userId, Long quotationId) {
+        if (isPostgres()) {
+            return jdbcTemplate.update(POSTGRES_MOVE_SQL, userId, quotationId);
+        }
+        int items = jdbcTemplate.update(MYSQL_COPY_SQL, quotationId, userId);
+        if (items > 0) {
+            jdbcTemplate.update(MYSQL_CLEAR_SQL, userId);
+        }
+        return items;
+    }
+
+    private boolean isPostgres() {
+        if (postgres == null) {
+            postgres = jdbcTemplate.execute((ConnectionCallback<Boolean>) con ->
+                    con.getMetaData().getDatabaseProductName().toLowerCase().contains("postgres"));
+        }
+        return postgres;
+    }
+}
@@ -0,0 +1,204 @@
+package backend.user_profile_backend.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Deletes abandoned carts: every line of a user whose cart has not changed for
+// cart.sweeper.idle-days. Runs on its own background thread every cart.sweeper.interval-minutes.
+// The table is walked in id order, chunk-size rows at a time, and each chunk is deleted in its
+// own short transaction, so a large backlog never holds locks on more than one chunk.
+@Component
+public class AbandonedCartSweeper {
+
+    private static final String SCAN_SQL =
+            "SELECT id, user_id FROM cart WHERE id > ? AND COALESCE(updated_at, created_at) < ? ORDER BY id LIMIT ?";
+    private static final String ACTIVE_USERS_SQL =
+            "SELECT DISTINCT user_id FROM cart WHERE user_id IN (%s) AND COALESCE(updated_at, created_at) >= ?";
+    // The age test is repeated so a line touched since the scan survives
+    private static final String DELETE_SQL =
+            "DELETE FROM cart WHERE id IN (%s) AND COALESCE(updated_at, created_at) < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate chunkTransaction;
+    private final WriteBehindCartStore cartStore;
+    private final ApplicationEventPublisher eventPublisher;
+    private final long idleDays;
+    private final int chunkSize;
+    private final ScheduledExecutorService executor;
+
+    private final Object runLock = new Object();
+    private final AtomicLong runs = new AtomicLong();
+    private final AtomicLong totalScanned = new AtomicLong();
+    private final AtomicLong totalPurged = new AtomicLong();
+    private volatile long lastRunAt;
+    private volatile long lastRunMillis;
+    private volatile long lastRunScanned;
+    private volatile long lastRunPurged;
+    private volatile long lastRunUsers;
+
+    public AbandonedCartSweeper(JdbcTemplate jdbcTemplate,
+                                PlatformTransactionManager transactionManager,
+                                WriteBehindCartStore cartStore,
+                                ApplicationEventPublisher eventPublisher,
+                                @Value("${cart.sweeper.enabled:true}") boolean enabled,
+                                @Value("${cart.sweeper.idle-days:30}") long idleDays,
+                                @Value("${cart.sweeper.interval-minutes:60}") long intervalMinutes,
+                                @Value("${cart.sweeper.chunk-size:500}") int chunkSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.chunkTransaction = new TransactionTemplate(transactionManager);
+        this.cartStore = cartStore;
+        this.eventPublisher = eventPublisher;
+        this.idleDays = idleDays;
+        this.chunkSize = chunkSize;
+        if (enabled) {
+            executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "cart-sweeper");
+                thread.setDaemon(true);
+                return thread;
+            });
+            executor.scheduleWithFixedDelay(this::scheduledSweep, intervalMinutes, intervalMinutes, TimeUnit.MINUTES);
+        } else {
+            executor = null;
+        }
+    }
+
+    // One full pass over the table; returns the number of lines deleted
+    public long sweep() {
+        synchronized (runLock) {
+            long started = System.currentTimeMillis();
+            // Pending write-behind changes bump updated_at, so flush them before judging age
+            cartStore.flush();
+            Timestamp cutoff = Timestamp.valueOf(LocalDateTime.now().minusDays(idleDays));
+
+            long scanned = 0;
+            long purged = 0;
+            Set<Long> purgedUsers = new HashSet<>();
+            long afterId = 0;
+            while (true) {
+                List<long[]> rows = jdbcTemplate.query(SCAN_SQL,
+                        (rs, rowNum) -> new long[]{rs.getLong("id"), rs.getLong("user_id")},
+                        afterId, cutoff, chunkSize);
+                if (rows.isEmpty()) {
+                    break;
+                }
+                scanned += rows.size();
+                afterId = rows.get(rows.size() - 1)[0];
+                ChunkResult result = chunkTransaction.execute(status -> purgeChunk(rows, cutoff));
+                purged += result.deleted;
+                purgedUsers.addAll(result.users);
+                if (rows.size() < chunkSize) {
+                    break;
+                }
+            }
+
+            // A user may have come back since the flush above; their new changes are saved, not dropped
+            for (Long userId : purgedUsers) {
+                if (!cartStore.saveAndEvict(userId)) {
+                    System.err.println("Could not save the cart of user " + userId + " after the sweep");
+                }
+                eventPublisher.publishEvent(CartChangeEvent.cleared(userId));
+            }
+
+            runs.incrementAndGet();
+            totalScanned.addAndGet(scanned);
+            totalPurged.addAndGet(purged);
+            lastRunAt = started;
+            lastRunMillis = System.currentTimeMillis() - started;
+            lastRunScanned = scanned;
+            lastRunPurged = purged;
+            lastRunUsers = purgedUsers.size();
+            return purged;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    public Map<String, Long> getStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("idleDays", idleDays);
+        stats.put("runs", runs.get());
+        stats.put("lastRunAt", lastRunAt);
+        stats.put("lastRunMillis", lastRunMillis);
+        stats.put("lastRunScanned", lastRunScanned);
+        stats.put("lastRunPurged", lastRunPurged);
+        stats.put("lastRunUsers", lastRunUsers);
+        stats.put("totalScanned", totalScanned.get());
+        stats.put("totalPurged", totalPurged.get());
+        return stats;
+    }
+
+    private void scheduledSweep() {
+        try {
+            sweep();
+        } catch (RuntimeException e) {
+            // An exception would cancel the schedule; the next run starts over from the first row
+            System.err.println("Cart sweep failed: " + e.getMessage());
+        }
+    }
+
+    // Stale lines of users who also have a recent line belong to a live cart and are kept
+    private ChunkResult purgeChunk(List<long[]> rows, Timestamp cutoff) {
+        Set<Long> users = new HashSet<>();
+        for (long[] row : rows) {
+            users.add(row[1]);
+        }
+        List<Object> activeArgs = new ArrayList<>(users);
+        activeArgs.add(cutoff);
+        Set<Long> active = new HashSet<>(jdbcTemplate.queryForList(
+                String.format(ACTIVE_USERS_SQL, placeholders(users.size())), Long.class, activeArgs.toArray()));
+
+        List<Object> deleteArgs = new ArrayList<>();
+        Set<Long> purgedUsers = new HashSet<>();
+        for (long[] row : rows) {
+            if (!active.contains(row[1])) {
+                deleteArgs.add(row[0]);
+                purgedUsers.add(row[1]);
+            }
+        }
+        if (deleteArgs.isEmpty()) {
+            return new ChunkResult(0, Collections.emptySet());
+        }
+        int ids = deleteArgs.size();
+        deleteArgs.add(cutoff);
+        int deleted = jdbcTemplate.update(String.format(DELETE_SQL, placeholders(ids)), deleteArgs.toArray());
+        return new ChunkResult(deleted, purgedUsers);
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+
+    private static class ChunkResult {
+        private final int deleted;
+        private final Set<Long> users;
+
+        private ChunkResult(int deleted, Set<Long> users) {
+            this.deleted = deleted;
+            this.users = users;
+        }
+    }
+}
@@ -1,28 +1,49 @@
 package backend.user_profile_backend.service;
 
+import backend.user_profile_backend.dto.CursorPage;
 import backend.user_profile_backend.dto.QuotationDto;
 import backend.user_profile_backend.dto.QuotationItemDto;
+import backend.user_profile_backend.dto.QuotationStatusResult;
+import backend.user_profile_backend.dto.QuotationSummary;
 import backend.user_profile_backend.model.Quotation;
-import backend.user_profile_backend.repository.OrderRepository;
 import backend.user_profile_backend.repository.QuotationRepository;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
 public class AdminService {
 
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int MAX_PAGE_SIZE = 100;
+    public static final int MAX_BULK_STATUS_UPDATE = 500;
+
+    // Open bounds for the queue's date filter and first page
+    private static final Timestamp EARLIEST = new Timestamp(0);
+    private static final Timestamp LATEST = Timestamp.valueOf("9999-12-31 00:00:00");
+
     private final QuotationRepository quotationRepository;
-    private final EmailService emailService;
-    private final OrderRepository orderRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     public AdminService(QuotationRepository quotationRepository,
-                        EmailService emailService,
-                        OrderRepository orderRepository) {
+                        ApplicationEventPublisher eventPublisher) {
         this.quotationRepository = quotationRepository;
-        this.emailService = emailService;
-        this.orderRepository = orderRepository;
+        this.eventPublisher = eventPublisher;
     }
 
     // Get all quotations with items
@@ -31,20 +52,54 @@ public class AdminService {
         return quotations.stream().map(this::mapToDto).toList();
     }
 
-    // Get approved quotations for a specific user that are NOT paid yet
+    // Admin queue: one page of summaries, newest first, optionally limited to a status and to
+    // request dates from..to (inclusive days). Items are only loaded by getQuotationDetail.
+    public CursorPage<QuotationSummary> getQuotationQueue(String status, String from, String to,
+                                                          String cursor, Integer size) {
+        Set<Quotation.QuotationStatus> statuses = status == null || status.isEmpty()
+                ? EnumSet.allOf(Quotation.QuotationStatus.class)
+                : EnumSet.of(parseStatus(status));
+        Timestamp fromDate = from == null || from.isEmpty() ? EARLIEST : Timestamp.valueOf(parseDate(from).atStartOfDay());
+        Timestamp toDate = to == null || to.isEmpty() ? LATEST : Timestamp.valueOf(parseDate(to).plusDays(1).atStartOfDay());
+        int pageSize = pageSize(size);
+
+        Timestamp afterDate = LATEST;
+        long afterId = Long.MAX_VALUE;
+        if (cursor != null && !cursor.isEmpty()) {
+            PageCursor after = PageCursor.decode(cursor);
+            try {
+                afterDate = Timestamp.from(Instant.parse(after.getKey()));
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException("Invalid page cursor: " + cursor);
+            }
+            afterId = after.getId();
+        }
+
+        List<QuotationSummary> rows = quotationRepository.findSummariesBefore(statuses, fromDate, toDate,
+                afterDate, afterId, PageRequest.of(0, pageSize + 1));
+        // The extra row only signals that another page exists
+        if (rows.size() <= pageSize) {
+            return new CursorPage<>(rows, null);
+        }
+        List<QuotationSummary> items = rows.subList(0, pageSize);
+        QuotationSummary last = items.get(pageSize - 1);
+        return new CursorPage<>(items,
+                new PageCursor(last.getRequestDate().toInstant().toString(), last.getQuotationId()).encode());
+    }
+
+    // One quotation with its items, for the admin detail view
+    public QuotationDto getQuotationDetail(Long quotationId) {
+        return quotationRepository.findWithItemsById(quotationId)
+                .map(this::mapToDto)
+                .orElseThrow(() -> new IllegalArgumentException("Quotation not found"));
+    }
+
+    // Get approved quotations for a specific user that are NOT paid yet: one query, filtered by
+    // the database and returned with their items and products
     public List<QuotationDto> getApprovedQuotationsForUser(Long userId) {
-        // Get all approved quotations for the user
-        List<Quotation> approvedQuotations = quotationRepository
-                .findByCustomerUserIdAndQstatus(userId, Quotation.QuotationStatus.APPROVED);
-
-        // Get all quotation IDs that already have an order
-        List<Long> paidQuotationIds = orderRepository.findAll().stream()
-                .map(o -> o.getQuotation().getQuotationId())
-                .toList();
-
-        // Filter out paid quotations and display only ones for which the payment is still pending
-        return approvedQuotations.stream()
-                .filter(q -> !paidQuotationIds.contains(q.getQuotationId()))
+        return quotationRepository
+                .findWithoutOrderByCustomerAndStatus(userId, Quotation.QuotationStatus.APPROVED)
+                .stream()
                 .map(this::mapToDto)
                 .collect(Collectors.toList());
     }
@@ -52,35 +107,80 @@ public class AdminService {
     // Approve or Reject quotation
     @Transactional
     public void updateQuotationStatus(Long quotationId, String status) {
-        Quotation quotation = quotationRepository.findById(quotationId)
-                .orElseThrow(() -> new RuntimeException("Quotation not found"));
-        quotation.setQstatus(Quotation.QuotationStatus.valueOf(status));
-        quotationRepository.save(quotation);
-
-        if ("APPROVED".equals(status)) {
-            // Email notification functionality - disabled for deployment demo
-            // NOTE: Email service is configured but disabled to avoid timeout on Render free tier
-            // Email config is set in environment variables (SPRING_MAIL_HOST, etc.)
-            // Uncomment below to enable email notifications in production with proper SMTP access
-            /*
-            try {
-                String to = quotation.getCustomer().getEmail();
-                String subject = "Your Quotation is Approved";
-                String body = "Hello " + quotation.getQname() + ",\n\n" +
-                        "Your quotation with ID " + quotation.getQuotationId() + " has been APPROVED.\n" +
-                        "Total Price: Rs. " + quotation.getTotalPrice() + "\n\n" +
-                        "You can now proceed with making your payment\n\n" +
-                        "We will ensure product delivery as soon as possible\n\n" +
-                        "Thank you for choosing us!";
-                emailService.sendEmail(to, subject, body);
-            } catch (Exception e) {
-                // Email failed but approval still succeeds
-                System.err.println("Email notification failed: " + e.getMessage());
+        QuotationStatusResult result = updateQuotationStatuses(List.of(quotationId), status).get(0);
+        if (result.getOutcome() == QuotationStatusResult.Outcome.NOT_FOUND) {
+            throw new RuntimeException("Quotation not found");
+        }
+    }
+
+    // One status for many quotations: their current statuses are read and locked with one query
+    // and the changed ones written with one UPDATE. With the rows locked, two admins approving
+    // the same quotation at once see UPDATED only once, so only one customer email goes out.
+    // Emails for the whole batch are sent after commit through QuotationNotifier.
+    @Transactional
+    public List<QuotationStatusResult> updateQuotationStatuses(List<Long> quotationIds, String status) {
+        if (quotationIds == null || quotationIds.isEmpty()) {
+            throw new IllegalArgumentException("No quotation ids given");
+        }
+        if (quotationIds.size() > MAX_BULK_STATUS_UPDATE) {
+            throw new IllegalArgumentException("At most " + MAX_BULK_STATUS_UPDATE + " quotations can be updated at once");
+        }
+        if (status == null) {
+            throw new IllegalArgumentException("Status is required");
+        }
+        Quotation.QuotationStatus target = parseStatus(status);
+
+        Map<Long, Quotation.QuotationStatus> current = new HashMap<>();
+        for (Object[] row : quotationRepository.lockStatuses(new HashSet<>(quotationIds))) {
+            current.put(((Number) row[0]).longValue(), Quotation.QuotationStatus.valueOf((String) row[1]));
+        }
+        Set<Long> changed = new LinkedHashSet<>();
+        List<QuotationStatusResult> results = new ArrayList<>(quotationIds.size());
+        for (Long quotationId : quotationIds) {
+            QuotationStatusResult.Outcome outcome;
+            if (!current.containsKey(quotationId)) {
+                outcome = QuotationStatusResult.Outcome.NOT_FOUND;
+            } else if (current.get(quotationId) == target) {
+                outcome = QuotationStatusResult.Outcome.UNCHANGED;
+            } else {
+                changed.add(quotationId);
+                outcome = QuotationStatusResult.Outcome.UPDATED;
             }
-            */
+            results.add(new QuotationStatusResult(quotationId, outcome));
+        }
+
+        if (!changed.isEmpty()) {
+            quotationRepository.updateStatus(changed, target);
+            eventPublisher.publishEvent(new QuotationStatusEvent(new ArrayList<>(changed), target));
         }
+        return results;
     }
 
+    private Quotation.QuotationStatus parseStatus(String status) {
+        try {
+            return Quotation.QuotationStatus.valueOf(status.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown quotation status: " + status);
+        }
+    }
+
+    private LocalDate parseDate(String date) {
+        try {
+            return LocalDate.parse(date.trim());
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Dates must be yyyy-MM-dd: " + date);
+        }
+    }
+
+    private int pageSize(Integer size) {
+        if (size == null) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        if (size < 1) {
+            throw new IllegalArgumentException("Page size must be at least 1");
+        }
+        return Math.min(size, MAX_PAGE_SIZE);
+    }
 
     private QuotationDto mapToDto(Quotation q) {
         QuotationDto dto = new QuotationDto();
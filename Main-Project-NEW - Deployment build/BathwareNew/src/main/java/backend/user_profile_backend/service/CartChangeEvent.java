@@ -0,0 +1,39 @@
+package backend.user_profile_backend.service;
+
+import java.util.Set;
+
+// Published by cart writes with the products whose lines they touched, or marked cleared when
+// the whole cart was emptied. It carries no quantities: two writes to the same cart can commit
+// in one order and deliver their events in the other, so listeners read the current lines back.
+public class CartChangeEvent {
+
+    private final Long userId;
+    private final Set<Long> productIds;
+    private final boolean cleared;
+
+    public CartChangeEvent(Long userId, Set<Long> productIds, boolean cleared) {
+        this.userId = userId;
+        this.productIds = productIds;
+        this.cleared = cleared;
+    }
+
+    public static CartChangeEvent line(Long userId, Long productId) {
+        return new CartChangeEvent(userId, Set.of(productId), false);
+    }
+
+    public static CartChangeEvent cleared(Long userId) {
+        return new CartChangeEvent(userId, Set.of(), true);
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public Set<Long> getProductIds() {
+        return productIds;
+    }
+
+    public boolean isCleared() {
+        return cleared;
+    }
+}
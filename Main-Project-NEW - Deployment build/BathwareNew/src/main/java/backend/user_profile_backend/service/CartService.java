@@ -1,22 +1,36 @@
 package backend.user_profile_backend.service;
 
+import backend.user_profile_backend.dto.CartContents;
+import backend.user_profile_backend.dto.CartOperation;
+import backend.user_profile_backend.dto.CartSummary;
 import backend.user_profile_backend.model.Cart;
-import backend.user_profile_backend.model.User;
 import backend.user_profile_backend.model.Product;
-import backend.user_profile_backend.repository.UserRepository;
+import backend.user_profile_backend.model.User;
 import backend.user_profile_backend.repository.CartRepository;
 import backend.user_profile_backend.repository.ProductRepository;
+import backend.user_profile_backend.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 @Service
 @Transactional
 public class CartService {
     
+    public static final int MAX_CART_OPERATIONS = 100;
+    
     @Autowired
     private CartRepository cartRepository;
     
@@ -26,94 +40,309 @@ public class CartService {
     @Autowired
     private UserRepository userRepository;
     
+    @Autowired
+    private ProductService productService;
+    
+    @Autowired
+    private WriteBehindCartStore cartStore;
+    
+    @Autowired
+    private CartTotalsIndex cartTotalsIndex;
+    
+    @Autowired
+    private AbandonedCartSweeper abandonedCartSweeper;
+    
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
     public List<Cart> getCartByUserId(Long userId) {
+        if (cartStore.isEnabled()) {
+            return cartStore.getCart(userId);
+        }
         return cartRepository.findByUserIdOrderByCreatedAtDesc(userId);
     }
     
+    // For pages that update and delete lines by cart id: new write-behind lines need their rows first.
+    // Runs outside a transaction so no connection is held while the flush waits for one.
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<Cart> getCartRowsByUserId(Long userId) {
+        if (cartStore.isEnabled()) {
+            cartStore.flushUser(userId);
+        }
+        return getCartByUserId(userId);
+    }
+    
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<Cart> getAllCarts() {
+        cartStore.flush();
+        return cartRepository.findAll();
+    }
+    
     public Cart addToCart(Long userId, Long productId, Long quantity) {
-        // Validate user exists
-        Optional<User> user = userRepository.findById(userId);
-        if (user.isEmpty()) {
-            throw new IllegalArgumentException("User not found with id: " + userId);
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be at least 1");
         }
         
-        // Validate product exists and is active
-        Optional<Product> product = productRepository.findById(productId);
-        if (product.isEmpty() || !product.get().getIsActive()) {
-            throw new IllegalArgumentException("Product not found or inactive with id: " + productId);
+        if (cartStore.isEnabled()) {
+            // User and cart come from the store, the product from the catalog cache
+            Product product = checkStock(productService.getProductById(productId), productId, quantity);
+            return cartStore.add(userId, product, quantity);
         }
         
-        // Check if product is in stock
-        if (product.get().getStockQuantity() < quantity) {
-            throw new IllegalArgumentException("Insufficient stock. Available: " + product.get().getStockQuantity());
+        // One statement checks the product and adds to (or creates) the line
+        Optional<Cart> cartItem;
+        try {
+            cartItem = cartRepository.upsertQuantity(userId, productId, quantity);
+        } catch (DataIntegrityViolationException e) {
+            // The product was matched by the statement itself; a missing user shows up as the
+            // user_id foreign key failing. Anything else is a real error and goes up as it is.
+            String cause = String.valueOf(e.getMostSpecificCause().getMessage()).toLowerCase();
+            if (cause.contains("foreign key") && cause.contains("user_id")) {
+                throw new IllegalArgumentException("User not found with id: " + userId);
+            }
+            throw e;
         }
-        
-        // Check if item already exists in cart
-        Optional<Cart> existingCartItem = cartRepository.findByUserIdAndProductId(userId, productId);
-        
-        if (existingCartItem.isPresent()) {
-            // Update quantity
-            Cart cartItem = existingCartItem.get();
-            cartItem.setQuantity(cartItem.getQuantity() + quantity);
-            return cartRepository.save(cartItem);
-        } else {
-            // Create new cart item
-            Cart cartItem = new Cart(user.get(), product.get(), quantity);
-            return cartRepository.save(cartItem);
+        if (cartItem.isEmpty()) {
+            // Nothing was written; look up why for the error message
+            checkStock(productService.getProductById(productId), productId, quantity);
+            throw new IllegalArgumentException("Insufficient stock for product: " + productId);
         }
+        productService.getProductById(productId).ifPresent(cartItem.get()::setProduct);
+        eventPublisher.publishEvent(CartChangeEvent.line(userId, productId));
+        return cartItem.get();
     }
     
     public Cart updateCartItemQuantity(Long userId, Long productId, Long quantity) {
-        Optional<Cart> cartItem = cartRepository.findByUserIdAndProductId(userId, productId);
-        if (cartItem.isEmpty()) {
-            throw new IllegalArgumentException("Cart item not found for user: " + userId + " and product: " + productId);
+        if (cartStore.isEnabled()) {
+            if (!cartStore.contains(userId, productId)) {
+                throw new IllegalArgumentException("Cart item not found for user: " + userId + " and product: " + productId);
+            }
+            return setQuantity(userId, productId, null, quantity);
         }
         
+        Cart cartItem = cartRepository.findByUserIdAndProductId(userId, productId)
+                .orElseThrow(() -> new IllegalArgumentException("Cart item not found for user: " + userId + " and product: " + productId));
+        return setQuantity(userId, productId, cartItem, quantity);
+    }
+    
+    // The /checkout/cart pages address lines by cart id and treat 0 as an error rather than a removal
+    public Cart updateCartItemQuantity(Long cartId, Long quantity) {
         if (quantity <= 0) {
-            cartRepository.deleteByUserIdAndProductId(userId, productId);
-            return null;
+            throw new IllegalArgumentException("Quantity must be at least 1");
+        }
+        Cart cartItem = findCartItem(cartId);
+        return setQuantity(cartItem.getUser().getUserId(), cartItem.getProduct().getId(),
+                cartStore.isEnabled() ? null : cartItem, quantity);
+    }
+    
+    // Runs add/set/remove operations in order as one change: every product is loaded with one
+    // query and checked in memory, and if any operation fails nothing is applied
+    public CartContents applyOperations(Long userId, List<CartOperation> operations) {
+        if (operations == null || operations.isEmpty()) {
+            throw new IllegalArgumentException("No cart operations given");
+        }
+        if (operations.size() > MAX_CART_OPERATIONS) {
+            throw new IllegalArgumentException("At most " + MAX_CART_OPERATIONS + " cart operations per request");
+        }
+        Set<Long> productIds = new HashSet<>();
+        for (CartOperation operation : operations) {
+            if (operation.getType() == null || operation.getProductId() == null) {
+                throw new IllegalArgumentException("Every cart operation needs a type and a productId");
+            }
+            if (operation.getType() != CartOperation.Type.REMOVE && operation.getQuantity() == null) {
+                throw new IllegalArgumentException(operation.getType() + " needs a quantity");
+            }
+            productIds.add(operation.getProductId());
+        }
+        Map<Long, Product> products = new HashMap<>();
+        for (Product product : productRepository.findAllById(productIds)) {
+            products.put(product.getId(), product);
         }
         
-        // Check stock availability
-        Optional<Product> product = productRepository.findById(productId);
-        if (product.isEmpty() || !product.get().getIsActive()) {
-            throw new IllegalArgumentException("Product not found or inactive with id: " + productId);
+        if (cartStore.isEnabled()) {
+            List<Cart> items = cartStore.update(userId,
+                    quantities -> applyOperations(userId, quantities, operations, products), products);
+            return CartContents.of(userId, items);
         }
         
-        if (product.get().getStockQuantity() < quantity) {
-            throw new IllegalArgumentException("Insufficient stock. Available: " + product.get().getStockQuantity());
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new IllegalArgumentException("User not found with id: " + userId));
+        Map<Long, Cart> lines = new LinkedHashMap<>();
+        for (Cart line : cartRepository.findWithProductsByUserId(userId)) {
+            lines.put(line.getProduct().getId(), line);
         }
+        Map<Long, Long> quantities = new LinkedHashMap<>();
+        lines.forEach((productId, line) -> quantities.put(productId, line.getQuantity()));
+        applyOperations(userId, quantities, operations, products);
         
-        Cart cart = cartItem.get();
-        cart.setQuantity(quantity);
-        return cartRepository.save(cart);
+        List<Cart> removed = new ArrayList<>();
+        Set<Long> changed = new HashSet<>();
+        lines.forEach((productId, line) -> {
+            if (!quantities.containsKey(productId)) {
+                removed.add(line);
+                changed.add(productId);
+            }
+        });
+        List<Cart> added = new ArrayList<>();
+        List<Cart> items = new ArrayList<>();
+        quantities.forEach((productId, quantity) -> {
+            Cart line = lines.get(productId);
+            if (line == null) {
+                added.add(new Cart(user, products.get(productId), quantity));
+                changed.add(productId);
+            } else {
+                if (!line.getQuantity().equals(quantity)) {
+                    line.setQuantity(quantity);
+                    changed.add(productId);
+                }
+                items.add(line);
+            }
+        });
+        if (!removed.isEmpty()) {
+            cartRepository.deleteAllInBatch(removed);
+        }
+        cartRepository.saveAll(added);
+        // New lines are the newest, the rest keep their createdAt order
+        items.addAll(0, added);
+        if (!changed.isEmpty()) {
+            eventPublisher.publishEvent(new CartChangeEvent(userId, changed, false));
+        }
+        return CartContents.of(userId, items);
     }
     
     public void removeFromCart(Long userId, Long productId) {
+        if (cartStore.isEnabled()) {
+            cartStore.remove(userId, productId);
+            return;
+        }
         cartRepository.deleteByUserIdAndProductId(userId, productId);
+        eventPublisher.publishEvent(CartChangeEvent.line(userId, productId));
+    }
+    
+    public void removeCartItem(Long cartId) {
+        Cart cartItem = findCartItem(cartId);
+        Long userId = cartItem.getUser().getUserId();
+        Long productId = cartItem.getProduct().getId();
+        if (cartStore.isEnabled()) {
+            cartStore.remove(userId, productId);
+            return;
+        }
+        cartRepository.delete(cartItem);
+        eventPublisher.publishEvent(CartChangeEvent.line(userId, productId));
     }
     
     public void clearCart(Long userId) {
+        if (cartStore.isEnabled()) {
+            cartStore.clear(userId);
+            return;
+        }
         cartRepository.deleteByUserId(userId);
+        eventPublisher.publishEvent(CartChangeEvent.cleared(userId));
+    }
+    
+    // Totals come from CartTotalsIndex, which keeps them per user instead of aggregating per call
+    public CartSummary getCartSummary(Long userId) {
+        return cartTotalsIndex.getSummary(userId);
     }
     
     public int getTotalItemsInCart(Long userId) {
-        Integer totalItems = cartRepository.getTotalItemsInCart(userId);
-        return totalItems != null ? totalItems : 0;
+        return (int) getCartSummary(userId).getTotalItems();
     }
     
     public double getTotalCartValue(Long userId) {
-        Double totalValue = cartRepository.getTotalCartValue(userId);
-        return totalValue != null ? totalValue : 0.0;
+        return getCartSummary(userId).getTotalValue().doubleValue();
     }
     
     public long getCartItemCount(Long userId) {
-        Long count = cartRepository.countByUserId(userId);
-        return count != null ? count : 0;
+        return getCartSummary(userId).getLineCount();
     }
     
     public boolean isProductInCart(Long userId, Long productId) {
+        if (cartStore.isEnabled()) {
+            return cartStore.contains(userId, productId);
+        }
         return cartRepository.findByUserIdAndProductId(userId, productId).isPresent();
     }
+    
+    public Map<String, Long> getCartStoreStats() {
+        return cartStore.getStats();
+    }
+    
+    public long sweepAbandonedCarts() {
+        return abandonedCartSweeper.sweep();
+    }
+    
+    public Map<String, Long> getSweeperStats() {
+        return abandonedCartSweeper.getStats();
+    }
+    
+    // The same rules as the single-line endpoints, applied to a working copy of the quantities
+    private Map<Long, Long> applyOperations(Long userId, Map<Long, Long> quantities,
+                                            List<CartOperation> operations, Map<Long, Product> products) {
+        for (CartOperation operation : operations) {
+            Long productId = operation.getProductId();
+            Long quantity = operation.getQuantity();
+            switch (operation.getType()) {
+                case ADD -> {
+                    if (quantity <= 0) {
+                        throw new IllegalArgumentException("Quantity must be at least 1");
+                    }
+                    checkStock(Optional.ofNullable(products.get(productId)), productId, quantity);
+                    quantities.merge(productId, quantity, Long::sum);
+                }
+                case SET -> {
+                    if (!quantities.containsKey(productId)) {
+                        throw new IllegalArgumentException("Cart item not found for user: " + userId + " and product: " + productId);
+                    }
+                    if (quantity <= 0) {
+                        quantities.remove(productId);
+                    } else {
+                        checkStock(Optional.ofNullable(products.get(productId)), productId, quantity);
+                        quantities.put(productId, quantity);
+                    }
+                }
+                case REMOVE -> quantities.remove(productId);
+            }
+        }
+        return quantities;
+    }
+    
+    // cartItem is the loaded row on the database path and null when the store holds the cart
+    private Cart setQuantity(Long userId, Long productId, Cart cartItem, Long quantity) {
+        if (quantity <= 0) {
+            if (cartItem == null) {
+                cartStore.remove(userId, productId);
+            } else {
+                cartRepository.delete(cartItem);
+                eventPublisher.publishEvent(CartChangeEvent.line(userId, productId));
+            }
+            return null;
+        }
+        
+        // Check stock availability against the catalog cache
+        Product product = checkStock(productService.getProductById(productId), productId, quantity);
+        if (cartItem == null) {
+            return cartStore.set(userId, product, quantity);
+        }
+        cartItem.setQuantity(quantity);
+        cartItem.setProduct(product);
+        Cart savedCart = cartRepository.save(cartItem);
+        eventPublisher.publishEvent(CartChangeEvent.line(userId, productId));
+        return savedCart;
+    }
+    
+    private Cart findCartItem(Long cartId) {
+        return cartRepository.findById(cartId)
+                .orElseThrow(() -> new IllegalArgumentException("Cart item not found with id: " + cartId));
+    }
+    
+    private Product checkStock(Optional<Product> product, Long productId, Long quantity) {
+        if (product.isEmpty() || !product.get().getIsActive()) {
+            throw new IllegalArgumentException("Product not found or inactive with id: " + productId);
+        }
+        if (product.get().getStockQuantity() < quantity) {
+            throw new IllegalArgumentException("Insufficient stock. Available: " + product.get().getStockQuantity());
+        }
+        return product.get();
+    }
 }
-
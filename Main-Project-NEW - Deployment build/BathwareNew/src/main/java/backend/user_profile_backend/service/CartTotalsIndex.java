@@ -0,0 +1,236 @@
+package backend.user_profile_backend.service;
+
+import backend.user_profile_backend.dto.CartSummary;
+import backend.user_profile_backend.model.Cart;
+import backend.user_profile_backend.model.Product;
+import backend.user_profile_backend.repository.CartRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Running cart totals per user: lines, units and the exact BigDecimal value. A user's totals
+// are loaded from their cart the first time they are asked for. After that a cart change event
+// re-reads only the lines it names and adjusts the totals by the difference, and a price change
+// adjusts every loaded cart holding the product, so a summary read is a single map lookup.
+// Each user's totals are their own lock: the first load and every update for that user,
+// including the cart and product reads they make, run while holding it. Other users, and the
+// map itself, are never blocked behind those reads.
+@Component
+public class CartTotalsIndex {
+
+    private final CartRepository cartRepository;
+    private final WriteBehindCartStore cartStore;
+    private final ProductService productService;
+
+    private final Map<Long, UserTotals> users = new ConcurrentHashMap<>();
+    // productId -> loaded totals that include that product
+    private final Map<Long, Set<UserTotals>> holders = new ConcurrentHashMap<>();
+    // Latest known price of every product in a loaded cart
+    private final Map<Long, BigDecimal> prices = new ConcurrentHashMap<>();
+
+    public CartTotalsIndex(CartRepository cartRepository, WriteBehindCartStore cartStore, ProductService productService) {
+        this.cartRepository = cartRepository;
+        this.cartStore = cartStore;
+        this.productService = productService;
+    }
+
+    public CartSummary getSummary(Long userId) {
+        while (true) {
+            UserTotals totals = users.computeIfAbsent(userId, UserTotals::new);
+            CartSummary summary = totals.summary;
+            if (summary != null) {
+                return summary;
+            }
+            synchronized (totals) {
+                if (totals.removed) {
+                    continue; // cleared while we waited; a fresh entry replaces it
+                }
+                if (totals.summary == null) {
+                    load(totals);
+                }
+                return totals.summary;
+            }
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCartChange(CartChangeEvent event) {
+        Long userId = event.getUserId();
+        // Users nobody has asked about yet are loaded fresh on their first read
+        UserTotals totals = users.get(userId);
+        if (totals == null) {
+            return;
+        }
+        synchronized (totals) {
+            if (totals.removed) {
+                return;
+            }
+            if (event.isCleared()) {
+                // Reloaded on the next read, which also covers lines added again since the clear
+                remove(totals);
+                return;
+            }
+            // Not loaded yet: the pending load reads the cart after this change committed
+            if (totals.summary == null) {
+                return;
+            }
+            Map<Long, Long> quantities = currentQuantities(userId, event.getProductIds());
+            for (Long productId : event.getProductIds()) {
+                setLine(totals, productId, quantities.getOrDefault(productId, 0L));
+            }
+            totals.publish();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChange(ProductChangeEvent event) {
+        Product product = event.getProduct();
+        if (product == null || product.getPrice() == null) {
+            return;
+        }
+        Long productId = product.getId();
+        BigDecimal price = product.getPrice();
+        BigDecimal previous = prices.get(productId);
+        if (previous == null || previous.compareTo(price) == 0) {
+            return;
+        }
+        // Price first, then holders: a line added meanwhile either reads the new price or is visited below
+        prices.put(productId, price);
+        for (UserTotals totals : holders.getOrDefault(productId, Set.of())) {
+            synchronized (totals) {
+                Line line = totals.lines.get(productId);
+                if (!totals.removed && line != null && line.price.compareTo(price) != 0) {
+                    totals.totalValue = totals.totalValue.add(price.subtract(line.price).multiply(BigDecimal.valueOf(line.quantity)));
+                    line.price = price;
+                    totals.publish();
+                }
+            }
+        }
+    }
+
+    // Imports can bring in products at any price; start over and reload users as they are read
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogReload(CatalogReloadEvent event) {
+        for (UserTotals totals : users.values()) {
+            synchronized (totals) {
+                totals.removed = true;
+                users.remove(totals.userId, totals);
+            }
+        }
+        holders.clear();
+        prices.clear();
+    }
+
+    public Map<String, Long> getStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("users", (long) users.size());
+        stats.put("products", (long) prices.size());
+        return stats;
+    }
+
+    // Runs holding the user's lock
+    private void load(UserTotals totals) {
+        List<Cart> items = cartStore.isEnabled()
+                ? cartStore.getCart(totals.userId)
+                : cartRepository.findWithProductsByUserId(totals.userId);
+        for (Cart item : items) {
+            Product product = item.getProduct();
+            holders.computeIfAbsent(product.getId(), id -> ConcurrentHashMap.newKeySet()).add(totals);
+            BigDecimal price = prices.computeIfAbsent(product.getId(), id -> product.getPrice());
+            totals.add(product.getId(), item.getQuantity(), price);
+        }
+        totals.publish();
+    }
+
+    // Runs holding the user's lock
+    private void remove(UserTotals totals) {
+        totals.removed = true;
+        users.remove(totals.userId, totals);
+        totals.lines.keySet().forEach(productId -> release(productId, totals));
+    }
+
+    private Map<Long, Long> currentQuantities(Long userId, Set<Long> productIds) {
+        if (cartStore.isEnabled()) {
+            return cartStore.getQuantities(userId, productIds);
+        }
+        Map<Long, Long> quantities = new HashMap<>();
+        for (Object[] row : cartRepository.findQuantities(userId, productIds)) {
+            quantities.put((Long) row[0], (Long) row[1]);
+        }
+        return quantities;
+    }
+
+    // Runs holding the user's lock
+    private void setLine(UserTotals totals, Long productId, long quantity) {
+        Line line = totals.lines.remove(productId);
+        if (line != null) {
+            totals.totalItems -= line.quantity;
+            totals.totalValue = totals.totalValue.subtract(line.price.multiply(BigDecimal.valueOf(line.quantity)));
+        }
+        if (quantity <= 0) {
+            release(productId, totals);
+            return;
+        }
+        // Register before reading the price; see onProductChange
+        holders.computeIfAbsent(productId, id -> ConcurrentHashMap.newKeySet()).add(totals);
+        BigDecimal price = prices.get(productId);
+        if (price == null) {
+            Optional<Product> product = productService.getProductById(productId);
+            price = product.map(Product::getPrice).orElse(BigDecimal.ZERO);
+            BigDecimal known = prices.putIfAbsent(productId, price);
+            price = known != null ? known : price;
+        }
+        totals.add(productId, quantity, price);
+    }
+
+    private void release(Long productId, UserTotals totals) {
+        holders.computeIfPresent(productId, (id, holding) -> {
+            holding.remove(totals);
+            return holding.isEmpty() ? null : holding;
+        });
+    }
+
+    private static class UserTotals {
+        private final Long userId;
+        private final Map<Long, Line> lines = new HashMap<>();
+        private long totalItems;
+        private BigDecimal totalValue = BigDecimal.ZERO;
+        // Set once the entry leaves the map; a thread still holding it must not change it
+        private boolean removed;
+        // null until loaded. Rebuilt after every change so readers outside the lock see one
+        // consistent set of numbers.
+        private volatile CartSummary summary;
+
+        private UserTotals(Long userId) {
+            this.userId = userId;
+        }
+
+        private void add(Long productId, long quantity, BigDecimal price) {
+            lines.put(productId, new Line(quantity, price));
+            totalItems += quantity;
+            totalValue = totalValue.add(price.multiply(BigDecimal.valueOf(quantity)));
+        }
+
+        private void publish() {
+            summary = new CartSummary(userId, lines.size(), totalItems, totalValue);
+        }
+    }
+
+    private static class Line {
+        private final long quantity;
+        private BigDecimal price;
+
+        private Line(long quantity, BigDecimal price) {
+            this.quantity = quantity;
+            this.price = price;
+        }
+    }
+}
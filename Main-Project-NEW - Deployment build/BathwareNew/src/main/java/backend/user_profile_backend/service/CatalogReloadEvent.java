@@ -0,0 +1,16 @@
+package backend.user_profile_backend.service;
+
+// Published after bulk writes that change many products at once without per-row events
+// (imports, set-based updates). Catalog structures reload everything they hold.
+public class CatalogReloadEvent {
+
+    private final int changedProducts;
+
+    public CatalogReloadEvent(int changedProducts) {
+        this.changedProducts = changedProducts;
+    }
+
+    public int getChangedProducts() {
+        return changedProducts;
+    }
+}
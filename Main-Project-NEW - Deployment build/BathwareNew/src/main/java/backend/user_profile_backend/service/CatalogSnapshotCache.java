@@ -0,0 +1,183 @@
+package backend.user_profile_backend.service;
+
+import backend.user_profile_backend.dto.ProductView;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+// Serialized JSON bodies for the hottest catalog responses, so Jackson runs once per change
+// instead of once per request. Invalidation follows the same events and versioning as
+// ProductCatalogCache: a snapshot built from data that a write has since replaced is dropped.
+// The version doubles as the catalog's HTTP validator, so a client holding the current ETag
+// can be answered 304 before any snapshot is looked up. A snapshot that survives a version
+// bump still matches the new version, so hits are restamped with it; otherwise a 200 would
+// hand out an ETag the next request can never match.
+@Component
+public class CatalogSnapshotCache {
+
+    public static final String ALL_CATEGORIES = "categories";
+
+    private final ObjectMapper objectMapper;
+
+    private final Object lock = new Object();
+    private final Map<String, JsonSnapshot> snapshots;
+    private long version;
+    private long lastModified = currentSecond();
+    // Keeps ETags from one run from matching the restarted counter of the next
+    private final String bootId = Long.toString(System.currentTimeMillis(), 36);
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong bytesFromSnapshots = new AtomicLong();
+    private final AtomicLong bytesSerialized = new AtomicLong();
+
+    public CatalogSnapshotCache(ObjectMapper objectMapper,
+                                @Value("${catalog.snapshots.max-entries:1000}") int maxEntries) {
+        this.objectMapper = objectMapper;
+        this.snapshots = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, JsonSnapshot> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    public static String productsKey(ProductView view) {
+        return "products:" + view;
+    }
+
+    public static String productKey(Long productId) {
+        return "product:" + productId;
+    }
+
+    public static String categoryProductsKey(Long categoryId, ProductView view) {
+        return "products:category:" + categoryId + ":" + view;
+    }
+
+    public static String categoryKey(Long categoryId) {
+        return "category:" + categoryId;
+    }
+
+    // Returns null when the loader has nothing to serialize (for example an unknown id)
+    public JsonSnapshot get(String key, Supplier<?> loader) {
+        long seenVersion;
+        long seenLastModified;
+        synchronized (lock) {
+            JsonSnapshot cached = snapshots.get(key);
+            if (cached != null) {
+                if (cached.getLastModified() != lastModified) {
+                    cached = cached.restamped(etagFor(version), lastModified);
+                    snapshots.put(key, cached);
+                }
+                hits.incrementAndGet();
+                bytesFromSnapshots.addAndGet(cached.getJson().length);
+                return cached;
+            }
+            seenVersion = version;
+            seenLastModified = lastModified;
+        }
+
+        misses.incrementAndGet();
+        Object value = loader.get();
+        if (value == null) {
+            return null;
+        }
+        JsonSnapshot snapshot;
+        try {
+            snapshot = new JsonSnapshot(objectMapper.writeValueAsBytes(value), etagFor(seenVersion), seenLastModified);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize " + key, e);
+        }
+        bytesSerialized.addAndGet(snapshot.getJson().length);
+
+        synchronized (lock) {
+            if (version == seenVersion) {
+                snapshots.put(key, snapshot);
+            }
+        }
+        return snapshot;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChange(ProductChangeEvent event) {
+        synchronized (lock) {
+            bumpVersion();
+            snapshots.remove(productKey(event.getProductId()));
+            for (ProductView view : ProductView.values()) {
+                snapshots.remove(productsKey(view));
+                if (event.getPreviousCategoryId() != null) {
+                    snapshots.remove(categoryProductsKey(event.getPreviousCategoryId(), view));
+                }
+                if (event.getCategoryId() != null) {
+                    snapshots.remove(categoryProductsKey(event.getCategoryId(), view));
+                }
+            }
+        }
+    }
+
+    // Category JSON is also nested in every product snapshot
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCategoryChange(CategoryChangeEvent event) {
+        synchronized (lock) {
+            bumpVersion();
+            snapshots.clear();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogReload(CatalogReloadEvent event) {
+        synchronized (lock) {
+            bumpVersion();
+            snapshots.clear();
+        }
+    }
+
+    public String getEtag() {
+        synchronized (lock) {
+            return etagFor(version);
+        }
+    }
+
+    // Epoch millis, truncated to the second as HTTP dates are
+    public long getLastModified() {
+        synchronized (lock) {
+            return lastModified;
+        }
+    }
+
+    // Last-Modified has one-second resolution, so each change moves it on by at least a second;
+    // otherwise a client that read within the same second would be told Not Modified. Several
+    // changes in one second put it briefly ahead of the clock.
+    private void bumpVersion() {
+        version++;
+        lastModified = Math.max(currentSecond(), lastModified + 1000);
+    }
+
+    private String etagFor(long catalogVersion) {
+        return "\"" + bootId + "-" + catalogVersion + "\"";
+    }
+
+    private static long currentSecond() {
+        return System.currentTimeMillis() / 1000 * 1000;
+    }
+
+    public Map<String, Long> getStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        synchronized (lock) {
+            stats.put("size", (long) snapshots.size());
+            stats.put("version", version);
+        }
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        stats.put("bytesFromSnapshots", bytesFromSnapshots.get());
+        stats.put("bytesSerialized", bytesSerialized.get());
+        return stats;
+    }
+}
@@ -0,0 +1,29 @@
+package backend.user_profile_backend.service;
+
+import backend.user_profile_backend.model.Category;
+
+// Published by CategoryService writes. Products embed their category, so catalog
+// structures holding products usually need to refresh when this fires.
+public class CategoryChangeEvent {
+
+    private final Long categoryId;
+    private final Category category;
+
+    // category is the saved state, or null when the row was permanently deleted
+    public CategoryChangeEvent(Long categoryId, Category category) {
+        this.categoryId = categoryId;
+        this.category = category;
+    }
+
+    public Long getCategoryId() {
+        return categoryId;
+    }
+
+    public Category getCategory() {
+        return category;
+    }
+
+    public boolean isDeleted() {
+        return category == null;
+    }
+}
@@ -0,0 +1,178 @@
+package backend.user_profile_backend.service;
+
+import backend.user_profile_backend.dto.CategorySummary;
+import backend.user_profile_backend.model.Category;
+import backend.user_profile_backend.model.Product;
+import backend.user_profile_backend.repository.CategoryRepository;
+import backend.user_profile_backend.repository.ProductRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Every category by id and by case-folded name, with the number of active products in each.
+// Name lookups, uniqueness checks and searches read these maps instead of the database, and
+// the counts follow product change events one product at a time, so /categories/summary
+// never runs a count query. Reads take no lock; writes are serialized on the lock below.
+@Component
+public class CategoryRegistry {
+
+    private final CategoryRepository categoryRepository;
+    private final ProductRepository productRepository;
+
+    private final Object lock = new Object();
+    private volatile State state = new State();
+    // Product and category changes, replayed onto a rebuilt registry
+    private final RebuildLog<Object> changeLog = new RebuildLog<>();
+    private volatile boolean ready;
+
+    public CategoryRegistry(CategoryRepository categoryRepository, ProductRepository productRepository) {
+        this.categoryRepository = categoryRepository;
+        this.productRepository = productRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        try (RebuildLog.Reload<Object> reload = changeLog.begin()) {
+            List<Category> categories = categoryRepository.findAll();
+            List<Object[]> activeProducts = productRepository.findActiveCategoryIds();
+            // Built aside and swapped in whole, so readers never see a half-loaded registry
+            State loaded = new State();
+            for (Category category : categories) {
+                loaded.put(category);
+            }
+            for (Object[] row : activeProducts) {
+                loaded.addProduct((Long) row[0], (Long) row[1]);
+            }
+            synchronized (lock) {
+                reload.replay(change -> apply(loaded, change));
+                state = loaded;
+                ready = true;
+            }
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChange(ProductChangeEvent event) {
+        synchronized (lock) {
+            changeLog.record(event);
+            apply(state, event);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCategoryChange(CategoryChangeEvent event) {
+        // A permanent delete cascades to the category's products without product events
+        if (event.isDeleted()) {
+            rebuild();
+            return;
+        }
+        synchronized (lock) {
+            changeLog.record(event);
+            apply(state, event);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogReload(CatalogReloadEvent event) {
+        rebuild();
+    }
+
+    public Optional<Category> findById(Long id) {
+        return Optional.ofNullable(state.byId.get(id));
+    }
+
+    public Optional<Category> findByName(String name) {
+        return name == null ? Optional.empty() : Optional.ofNullable(state.byName.get(fold(name)));
+    }
+
+    // True when another category already uses the name, ignoring case; excludeId may be null
+    public boolean isNameTaken(String name, Long excludeId) {
+        Category existing = findByName(name).orElse(null);
+        return existing != null && !existing.getId().equals(excludeId);
+    }
+
+    public List<Category> findActive() {
+        return state.byId.values().stream()
+                .filter(category -> Boolean.TRUE.equals(category.getIsActive()))
+                .sorted(Comparator.comparing(Category::getId))
+                .toList();
+    }
+
+    // Case-insensitive substring match over every category, like the LIKE query it replaces
+    public List<Category> search(String query) {
+        String needle = fold(query);
+        return state.byId.values().stream()
+                .filter(category -> category.getName() != null && fold(category.getName()).contains(needle))
+                .sorted(Comparator.comparing(Category::getId))
+                .toList();
+    }
+
+    public long getProductCount(Long categoryId) {
+        return state.counts.getOrDefault(categoryId, 0L);
+    }
+
+    public List<CategorySummary> getSummaries() {
+        State current = state;
+        return findActive().stream()
+                .map(category -> new CategorySummary(category.getId(), category.getName(), category.getDescription(),
+                        current.counts.getOrDefault(category.getId(), 0L)))
+                .toList();
+    }
+
+    private static void apply(State target, Object change) {
+        if (change instanceof ProductChangeEvent event) {
+            target.removeProduct(event.getProductId());
+            Product product = event.getProduct();
+            if (product != null && Boolean.TRUE.equals(product.getIsActive()) && event.getCategoryId() != null) {
+                target.addProduct(event.getProductId(), event.getCategoryId());
+            }
+        } else if (change instanceof CategoryChangeEvent event) {
+            target.put(event.getCategory());
+        }
+    }
+
+    private static String fold(String name) {
+        return name.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static class State {
+        private final Map<Long, Category> byId = new ConcurrentHashMap<>();
+        private final Map<String, Category> byName = new ConcurrentHashMap<>();
+        private final Map<Long, Long> productCategories = new ConcurrentHashMap<>();
+        private final Map<Long, Long> counts = new ConcurrentHashMap<>();
+
+        private void put(Category category) {
+            Category previous = byId.put(category.getId(), category);
+            if (previous != null && previous.getName() != null) {
+                byName.remove(fold(previous.getName()), previous);
+            }
+            if (category.getName() != null) {
+                byName.put(fold(category.getName()), category);
+            }
+        }
+
+        private void addProduct(Long productId, Long categoryId) {
+            productCategories.put(productId, categoryId);
+            counts.merge(categoryId, 1L, Long::sum);
+        }
+
+        private void removeProduct(Long productId) {
+            Long categoryId = productCategories.remove(productId);
+            if (categoryId != null) {
+                counts.computeIfPresent(categoryId, (id, count) -> count > 1 ? count - 1 : null);
+            }
+        }
+    }
+}
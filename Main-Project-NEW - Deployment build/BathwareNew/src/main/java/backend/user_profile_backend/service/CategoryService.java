@@ -1,12 +1,18 @@
 package backend.user_profile_backend.service;
 
+import backend.user_profile_backend.dto.CategorySummary;
 import backend.user_profile_backend.model.Category;
 import backend.user_profile_backend.repository.CategoryRepository;
+import backend.user_profile_backend.repository.ProductRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
@@ -16,15 +22,61 @@ public class CategoryService {
     @Autowired
     private CategoryRepository categoryRepository;
     
+    @Autowired
+    private ProductRepository productRepository;
+    
+    @Autowired
+    private CatalogSnapshotCache catalogSnapshotCache;
+    
+    @Autowired
+    private CategoryRegistry categoryRegistry;
+    
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
     public List<Category> getAllCategories() {
+        if (categoryRegistry.isReady()) {
+            return categoryRegistry.findActive();
+        }
         return categoryRepository.findByIsActiveTrue();
     }
     
+    public List<CategorySummary> getCategorySummaries() {
+        if (categoryRegistry.isReady()) {
+            return categoryRegistry.getSummaries();
+        }
+        // Until the startup load finishes: one grouped count rather than a registry rebuild per request
+        Map<Long, Long> counts = new HashMap<>();
+        for (Object[] row : productRepository.countActiveByCategory()) {
+            counts.put((Long) row[0], ((Number) row[1]).longValue());
+        }
+        return categoryRepository.findByIsActiveTrue().stream()
+                .sorted(Comparator.comparing(Category::getId))
+                .map(category -> new CategorySummary(category.getId(), category.getName(), category.getDescription(),
+                        counts.getOrDefault(category.getId(), 0L)))
+                .toList();
+    }
+    
     public Optional<Category> getCategoryById(Long id) {
+        if (categoryRegistry.isReady()) {
+            return categoryRegistry.findById(id);
+        }
         return categoryRepository.findById(id);
     }
     
+    public JsonSnapshot getAllCategoriesSnapshot() {
+        return catalogSnapshotCache.get(CatalogSnapshotCache.ALL_CATEGORIES, this::getAllCategories);
+    }
+    
+    public JsonSnapshot getCategorySnapshot(Long id) {
+        return catalogSnapshotCache.get(CatalogSnapshotCache.categoryKey(id),
+                () -> getCategoryById(id).orElse(null));
+    }
+    
     public Optional<Category> getCategoryByName(String name) {
+        if (categoryRegistry.isReady()) {
+            return categoryRegistry.findByName(name);
+        }
         return categoryRepository.findByName(name);
     }
     
@@ -32,16 +84,21 @@ public class CategoryService {
         if (name == null || name.trim().isEmpty()) {
             return getAllCategories();
         }
+        if (categoryRegistry.isReady()) {
+            return categoryRegistry.search(name);
+        }
         return categoryRepository.findByNameContaining(name.trim());
     }
     
     public Category createCategory(Category category) {
         // Check if category with same name already exists
-        if (categoryRepository.existsByName(category.getName())) {
+        if (isNameTaken(category.getName(), null)) {
             throw new IllegalArgumentException("Category with name '" + category.getName() + "' already exists");
         }
         
-        return categoryRepository.save(category);
+        Category savedCategory = categoryRepository.save(category);
+        eventPublisher.publishEvent(new CategoryChangeEvent(savedCategory.getId(), savedCategory));
+        return savedCategory;
     }
     
     public Category updateCategory(Long id, Category categoryDetails) {
@@ -54,7 +111,7 @@ public class CategoryService {
         
         // Check if new name conflicts with existing category
         if (categoryDetails.getName() != null && !categoryDetails.getName().equals(category.getName())) {
-            if (categoryRepository.existsByName(categoryDetails.getName())) {
+            if (isNameTaken(categoryDetails.getName(), id)) {
                 throw new IllegalArgumentException("Category with name '" + categoryDetails.getName() + "' already exists");
             }
             category.setName(categoryDetails.getName());
@@ -64,7 +121,9 @@ public class CategoryService {
             category.setDescription(categoryDetails.getDescription());
         }
         
-        return categoryRepository.save(category);
+        Category savedCategory = categoryRepository.save(category);
+        eventPublisher.publishEvent(new CategoryChangeEvent(id, savedCategory));
+        return savedCategory;
     }
     
     public void deleteCategory(Long id) {
@@ -75,7 +134,8 @@ public class CategoryService {
         
         Category category = optionalCategory.get();
         category.setIsActive(false);
-        categoryRepository.save(category);
+        Category savedCategory = categoryRepository.save(category);
+        eventPublisher.publishEvent(new CategoryChangeEvent(id, savedCategory));
     }
     
     public void permanentlyDeleteCategory(Long id) {
@@ -83,10 +143,21 @@ public class CategoryService {
             throw new IllegalArgumentException("Category not found with id: " + id);
         }
         categoryRepository.deleteById(id);
+        eventPublisher.publishEvent(new CategoryChangeEvent(id, null));
     }
     
     public boolean categoryExists(String name) {
-        return categoryRepository.existsByName(name);
+        return isNameTaken(name, null);
+    }
+    
+    // Names are unique regardless of case; a category may change the case of its own name
+    private boolean isNameTaken(String name, Long excludeId) {
+        if (categoryRegistry.isReady()) {
+            return categoryRegistry.isNameTaken(name, excludeId);
+        }
+        return categoryRepository.findByName(name)
+                .map(existing -> !existing.getId().equals(excludeId))
+                .orElse(false);
     }
 }
 
@@ -2,8 +2,10 @@ package backend.user_profile_backend.service;
 
 import backend.user_profile_backend.model.*;
 import backend.user_profile_backend.repository.*;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import java.math.BigDecimal;
 import java.sql.Timestamp;
 import java.util.List;
@@ -12,100 +14,80 @@ import java.util.List;
 public class CheckoutService {
 
     private final UserRepository userRepository;
-    private final ProductRepository productRepository;
-    private final CartRepository cartRepository;
     private final QuotationRepository quotationRepository;
-    private final QuotationItemRepository quotationItemsRepository;
+    private final CartService cartService;
+    private final WriteBehindCartStore cartStore;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
 
     public CheckoutService(UserRepository userRepository,
-                           ProductRepository productRepository,
-                           CartRepository cartRepository,
                            QuotationRepository quotationRepository,
-                           QuotationItemRepository quotationItemsRepository) {
+                           CartService cartService,
+                           WriteBehindCartStore cartStore,
+                           ApplicationEventPublisher eventPublisher,
+                           PlatformTransactionManager transactionManager) {
         this.userRepository = userRepository;
-        this.productRepository = productRepository;
-        this.cartRepository = cartRepository;
         this.quotationRepository = quotationRepository;
-        this.quotationItemsRepository = quotationItemsRepository;
+        this.cartService = cartService;
+        this.cartStore = cartStore;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
-    // Cart Methods
+    // Cart Methods: the /checkout/cart endpoints share CartService's stock checks, upsert and caches
     public List<Cart> getUserCart(Long userId) {
-        return cartRepository.findByUserId(userId);
+        return cartService.getCartRowsByUserId(userId);
     }
 
     public Cart addToCart(Long userId, Long productId, Long quantity) {
-        User user = userRepository.findById(userId).orElseThrow();
-        Product product = productRepository.findById(productId).orElseThrow();
-
-        Cart cart = new Cart();
-        cart.setUser(user);
-        cart.setProduct(product);
-        cart.setQuantity(quantity);
-
-        return cartRepository.save(cart);
+        return cartService.addToCart(userId, productId, quantity);
     }
 
-    @Transactional
     public Cart updateCartQuantity(Long cartId, Long quantity) {
-        Cart cart = cartRepository.findById(cartId)
-                .orElseThrow(() -> new RuntimeException("Cart item not found"));
-
-        if (quantity <= 0) {
-            throw new RuntimeException("Quantity must be greater than 0");
-        }
-
-        cart.setQuantity(quantity);
-        return cartRepository.save(cart);
+        return cartService.updateCartItemQuantity(cartId, quantity);
     }
 
-    @Transactional
     public void deleteCartItem(Long cartId) {
-        if (!cartRepository.existsById(cartId)) {
-            throw new RuntimeException("Cart item not found");
-        }
-        cartRepository.deleteById(cartId);
+        cartService.removeCartItem(cartId);
     }
 
     public void clearCart(Long userId) {
-        cartRepository.deleteByUserId(userId);
+        cartService.clearCart(userId);
     }
 
     public List<Cart> getAllCarts() {
-        return cartRepository.findAll();
+        return cartService.getAllCarts();
     }
 
-    @Transactional
     public Quotation createQuotation(Long userId, String qname, String address, String qnumber) {
-        List<Cart> cartItems = cartRepository.findByUserId(userId);
-        if (cartItems.isEmpty()) throw new RuntimeException("Cart is empty");
-
-        BigDecimal total = cartItems.stream()
-                .map(c -> c.getProduct().getPrice().multiply(BigDecimal.valueOf(c.getQuantity())))
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        // The quotation is built from the cart table, which may lag the write-behind store. The
+        // flush commits on its own connection, so it runs before this method's transaction takes one.
+        cartStore.flushUser(userId);
+        return transactionTemplate.execute(status -> moveCartToQuotation(userId, qname, address, qnumber));
+    }
 
-        User user = userRepository.findById(userId).orElseThrow();
+    private Quotation moveCartToQuotation(Long userId, String qname, String address, String qnumber) {
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new IllegalArgumentException("User not found with id: " + userId));
         Quotation quotation = new Quotation();
         quotation.setCustomer(user);
         quotation.setQname(qname);
         quotation.setAddress(address);
         quotation.setQnumber(qnumber);
         quotation.setQstatus(Quotation.QuotationStatus.PENDING);
-        quotation.setTotalPrice(total);
+        quotation.setTotalPrice(BigDecimal.ZERO);
         quotation.setRequestDate(new Timestamp(System.currentTimeMillis()));
 
         Quotation savedQuotation = quotationRepository.save(quotation);
 
-        for (Cart cartItem : cartItems) {
-            QuotationItem item = new QuotationItem();
-            item.setQuotation(savedQuotation);
-            item.setProduct(cartItem.getProduct());
-            item.setQuantity(cartItem.getQuantity());
-            item.setPrice(cartItem.getProduct().getPrice());
-            quotationItemsRepository.save(item);
-        }
+        // Items are copied from the cart at current prices and the cart emptied in SQL;
+        // throwing rolls back the quotation row as well
+        int items = quotationRepository.moveCartToQuotation(userId, savedQuotation.getQuotationId());
+        if (items == 0) throw new IllegalArgumentException("Cart is empty");
+        savedQuotation.setTotalPrice(quotationRepository.sumItemTotals(savedQuotation.getQuotationId()));
 
-        cartRepository.deleteByUserId(userId);
+        cartStore.evict(userId);
+        eventPublisher.publishEvent(CartChangeEvent.cleared(userId));
 
         return savedQuotation;
     }
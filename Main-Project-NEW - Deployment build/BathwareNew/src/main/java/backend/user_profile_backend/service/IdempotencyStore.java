@@ -0,0 +1,219 @@
+package backend.user_profile_backend.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+// Responses to requests sent with an Idempotency-Key header, kept for idempotency.ttl-minutes.
+// The first request with a key runs; a retry with the same key gets the stored status and body
+// back without running again, and a retry that arrives while the first is still running waits
+// for it. 2xx and 4xx answers are kept; a 5xx or an exception forgets the key so a retry can
+// run again. Reusing a key for a different request (another fingerprint) is answered 422.
+// At idempotency.max-entries the oldest finished key makes room for a new one; keys still
+// running are never forgotten, so when every slot is running a new key is answered 503.
+@Component
+public class IdempotencyStore {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final ObjectMapper objectMapper;
+    private final long ttlMillis;
+    private final long waitSeconds;
+    private final int maxEntries;
+
+    private final Object lock = new Object();
+    // Oldest first
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+
+    private final AtomicLong executions = new AtomicLong();
+    private final AtomicLong replays = new AtomicLong();
+    private final AtomicLong waits = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    public IdempotencyStore(ObjectMapper objectMapper,
+                            @Value("${idempotency.ttl-minutes:1440}") long ttlMinutes,
+                            @Value("${idempotency.max-entries:10000}") int maxEntries,
+                            @Value("${idempotency.wait-seconds:30}") long waitSeconds) {
+        this.objectMapper = objectMapper;
+        this.ttlMillis = TimeUnit.MINUTES.toMillis(ttlMinutes);
+        this.waitSeconds = waitSeconds;
+        this.maxEntries = maxEntries;
+    }
+
+    // scope keeps keys of different endpoints apart; fingerprint identifies the request a key
+    // was first used for. Without a key the action simply runs.
+    public ResponseEntity<?> execute(String scope, String key, String fingerprint,
+                                     Supplier<ResponseEntity<?>> action) {
+        if (key == null || key.isBlank()) {
+            return action.get();
+        }
+        if (key.length() > MAX_KEY_LENGTH) {
+            return ResponseEntity.badRequest().body(HEADER + " must be at most " + MAX_KEY_LENGTH + " characters");
+        }
+        String storeKey = scope + ":" + key;
+        while (true) {
+            Entry claimed = new Entry(fingerprint);
+            Entry existing;
+            synchronized (lock) {
+                existing = entries.get(storeKey);
+                if (existing != null && existing.isExpired()) {
+                    entries.remove(storeKey);
+                    existing = null;
+                }
+                if (existing == null) {
+                    if (entries.size() >= maxEntries && !evictOldestFinished()) {
+                        rejected.incrementAndGet();
+                        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                                .body("Too many requests with an " + HEADER + " are in progress; try again shortly");
+                    }
+                    entries.put(storeKey, claimed);
+                }
+            }
+            if (existing == null) {
+                return run(storeKey, claimed, action);
+            }
+            if (!Objects.equals(existing.fingerprint, fingerprint)) {
+                return ResponseEntity.unprocessableEntity()
+                        .body(HEADER + " was already used for a different request");
+            }
+            if (!existing.result.isDone()) {
+                waits.incrementAndGet();
+            }
+            StoredResponse stored;
+            try {
+                stored = existing.result.get(waitSeconds, TimeUnit.SECONDS);
+            } catch (TimeoutException e) {
+                return ResponseEntity.status(HttpStatus.CONFLICT)
+                        .body("A request with this " + HEADER + " is still being processed");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+            } catch (ExecutionException e) {
+                stored = null;
+            }
+            if (stored != null) {
+                replays.incrementAndGet();
+                ResponseEntity.BodyBuilder replay = ResponseEntity.status(stored.status).header(REPLAYED_HEADER, "true");
+                return stored.body == null ? replay.build() : replay.contentType(stored.contentType).body(stored.body);
+            }
+            // The first attempt failed and gave up the key; claim it again
+        }
+    }
+
+    public Map<String, Long> getStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        synchronized (lock) {
+            stats.put("size", (long) entries.size());
+        }
+        stats.put("executions", executions.get());
+        stats.put("replays", replays.get());
+        stats.put("waits", waits.get());
+        stats.put("rejected", rejected.get());
+        return stats;
+    }
+
+    // Called with lock held; false when every entry is still running
+    private boolean evictOldestFinished() {
+        Iterator<Entry> oldestFirst = entries.values().iterator();
+        while (oldestFirst.hasNext()) {
+            if (oldestFirst.next().result.isDone()) {
+                oldestFirst.remove();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private ResponseEntity<?> run(String storeKey, Entry claimed, Supplier<ResponseEntity<?>> action) {
+        executions.incrementAndGet();
+        ResponseEntity<?> response;
+        try {
+            response = action.get();
+        } catch (RuntimeException | Error e) {
+            release(storeKey, claimed);
+            throw e;
+        }
+        StoredResponse stored = response.getStatusCode().is5xxServerError() ? null : store(response);
+        if (stored == null) {
+            release(storeKey, claimed);
+            return response;
+        }
+        // The TTL counts from completion, so a slow first request is not forgotten early
+        claimed.expiresAt = System.currentTimeMillis() + ttlMillis;
+        claimed.result.complete(stored);
+        return response;
+    }
+
+    private void release(String storeKey, Entry claimed) {
+        synchronized (lock) {
+            entries.remove(storeKey, claimed);
+        }
+        claimed.result.complete(null);
+    }
+
+    // Serialized once now, so a replay neither touches the entity nor runs Jackson again
+    private StoredResponse store(ResponseEntity<?> response) {
+        Object body = response.getBody();
+        try {
+            if (body == null) {
+                return new StoredResponse(response.getStatusCode(), null, null);
+            }
+            if (body instanceof String text) {
+                return new StoredResponse(response.getStatusCode(),
+                        new MediaType(MediaType.TEXT_PLAIN, StandardCharsets.UTF_8), text.getBytes(StandardCharsets.UTF_8));
+            }
+            return new StoredResponse(response.getStatusCode(), MediaType.APPLICATION_JSON,
+                    objectMapper.writeValueAsBytes(body));
+        } catch (JsonProcessingException e) {
+            System.err.println("Could not keep idempotent response: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static class Entry {
+        private final String fingerprint;
+        private final CompletableFuture<StoredResponse> result = new CompletableFuture<>();
+        // Long.MAX_VALUE while running: an in-flight request never expires
+        private volatile long expiresAt = Long.MAX_VALUE;
+
+        private Entry(String fingerprint) {
+            this.fingerprint = fingerprint;
+        }
+
+        private boolean isExpired() {
+            return System.currentTimeMillis() > expiresAt;
+        }
+    }
+
+    private static class StoredResponse {
+        private final HttpStatusCode status;
+        private final MediaType contentType;
+        private final byte[] body;
+
+        private StoredResponse(HttpStatusCode status, MediaType contentType, byte[] body) {
+            this.status = status;
+            this.contentType = contentType;
+            this.body = body;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package backend.user_profile_backend.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.zip.GZIPOutputStream;
+
+// A ready-to-send UTF-8 JSON body. The gzip form is built on first use and kept with it.
+// etag and lastModified name the latest catalog version the body is known to match.
+public class JsonSnapshot {
+
+    private final byte[] json;
+    private final String etag;
+    private final long lastModified;
+    private volatile byte[] gzip;
+
+    public JsonSnapshot(byte[] json, String etag, long lastModified) {
+        this.json = json;
+        this.etag = etag;
+        this.lastModified = lastModified;
+    }
+
+    // The same body under a newer validator, keeping any gzip form already built
+    JsonSnapshot restamped(String etag, long lastModified) {
+        JsonSnapshot copy = new JsonSnapshot(json, etag, lastModified);
+        copy.gzip = gzip;
+        return copy;
+    }
+
+    public byte[] getJson() {
+        return json;
+    }
+
+    public String getEtag() {
+        return etag;
+    }
+
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    public byte[] getGzip() {
+        byte[] compressed = gzip;
+        if (compressed == null) {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(json.length / 4 + 64);
+            try (GZIPOutputStream out = new GZIPOutputStream(buffer)) {
+                out.write(json);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            compressed = buffer.toByteArray();
+            gzip = compressed;
+        }
+        return compressed;
+    }
+}
@@ -0,0 +1,302 @@
+package backend.user_profile_backend.service;
+
+import backend.user_profile_backend.dto.CursorPage;
+import backend.user_profile_backend.dto.LowStockAlert;
+import backend.user_profile_backend.model.Product;
+import backend.user_profile_backend.repository.ProductRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Stock levels of the active catalog, kept sorted by (stock, id) and updated from product
+// change events, so low-stock lists are a walk from the bottom of the set instead of a scan.
+// A product is low when its stock is at or below its category's threshold
+// (catalog.low-stock.category-thresholds, falling back to catalog.low-stock.default-threshold).
+// Crossings in either direction are pushed to /products/low-stock/stream subscribers from one
+// background thread, in the order they happened, so a slow client never holds up the request
+// that changed the stock.
+@Component
+public class LowStockMonitor {
+
+    private static final long STREAM_TIMEOUT_MS = 30 * 60 * 1000L;
+
+    private final ProductRepository productRepository;
+    private final long defaultThreshold;
+    private final Map<Long, Long> categoryThresholds = new HashMap<>();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final NavigableSet<StockEntry> byStock = new TreeSet<>(
+            Comparator.comparingLong((StockEntry entry) -> entry.stock).thenComparingLong(entry -> entry.productId));
+    private final Map<Long, StockEntry> entries = new HashMap<>();
+    private final Map<Long, Product> products = new HashMap<>();
+    private final Set<Long> low = new HashSet<>();
+    private final RebuildLog<ProductChangeEvent> changeLog = new RebuildLog<>();
+    private volatile boolean ready;
+
+    private final List<SseEmitter> subscribers = new CopyOnWriteArrayList<>();
+    private final ExecutorService sender;
+
+    public LowStockMonitor(ProductRepository productRepository,
+                           @Value("${catalog.low-stock.default-threshold:10}") long defaultThreshold,
+                           @Value("${catalog.low-stock.category-thresholds:}") String[] categoryThresholds) {
+        this.productRepository = productRepository;
+        this.defaultThreshold = defaultThreshold;
+        // Entries look like categoryId:threshold
+        for (String entry : categoryThresholds) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            String[] parts = entry.trim().split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Expected categoryId:threshold but got " + entry);
+            }
+            this.categoryThresholds.put(Long.valueOf(parts[0].trim()), Long.valueOf(parts[1].trim()));
+        }
+        this.sender = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "low-stock-alerts");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        List<LowStockAlert> alerts = new ArrayList<>();
+        try (RebuildLog.Reload<ProductChangeEvent> reload = changeLog.begin()) {
+            List<Product> activeProducts = productRepository.findByIsActiveTrue();
+            lock.writeLock().lock();
+            try {
+                Map<Long, Product> previous = new HashMap<>(products);
+                Set<Long> wasLow = new HashSet<>(low);
+                byStock.clear();
+                entries.clear();
+                products.clear();
+                low.clear();
+                for (Product product : activeProducts) {
+                    add(product);
+                }
+                // Replayed changes were already reported when they arrived; the diff below
+                // compares against state that includes them, so they are not reported again
+                reload.replay(this::apply);
+                // Only report differences once the first load has happened
+                if (ready) {
+                    for (Long productId : wasLow) {
+                        if (!low.contains(productId)) {
+                            Product product = products.containsKey(productId) ? products.get(productId) : previous.get(productId);
+                            alerts.add(alert(product, products.containsKey(productId)
+                                    ? LowStockAlert.RESTOCKED : LowStockAlert.REMOVED));
+                        }
+                    }
+                    for (Long productId : low) {
+                        if (!wasLow.contains(productId)) {
+                            alerts.add(alert(products.get(productId), LowStockAlert.LOW));
+                        }
+                    }
+                }
+                ready = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        alerts.forEach(this::publish);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChange(ProductChangeEvent event) {
+        LowStockAlert alert;
+        lock.writeLock().lock();
+        try {
+            changeLog.record(event);
+            alert = apply(event);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (alert != null) {
+            publish(alert);
+        }
+    }
+
+    // Returns the crossing the change caused, if any
+    private LowStockAlert apply(ProductChangeEvent event) {
+        Long productId = event.getProductId();
+        Product previous = products.get(productId);
+        boolean wasLow = low.contains(productId);
+        remove(productId);
+        Product product = event.getProduct();
+        if (product != null && Boolean.TRUE.equals(product.getIsActive())) {
+            add(product);
+        }
+        boolean isLow = low.contains(productId);
+        if (wasLow && !isLow) {
+            return products.containsKey(productId)
+                    ? alert(product, LowStockAlert.RESTOCKED)
+                    : alert(previous, LowStockAlert.REMOVED);
+        }
+        if (!wasLow && isLow) {
+            return alert(product, LowStockAlert.LOW);
+        }
+        return null;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCategoryChange(CategoryChangeEvent event) {
+        rebuild();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogReload(CatalogReloadEvent event) {
+        rebuild();
+    }
+
+    // threshold applies one limit to every product; null uses each product's category threshold.
+    // Results are in (stock, id) order, the same order ProductRepository.findLowStockAfter pages in.
+    public CursorPage<Product> findLowStock(Long threshold, PageCursor after, int size) {
+        lock.readLock().lock();
+        try {
+            long limit = threshold != null ? threshold : maxThreshold();
+            NavigableSet<StockEntry> candidates = byStock.headSet(new StockEntry(limit, Long.MAX_VALUE), true);
+            if (after != null) {
+                candidates = candidates.tailSet(new StockEntry(Long.parseLong(after.getKey()), after.getId()), false);
+            }
+            List<Product> items = new ArrayList<>();
+            StockEntry last = null;
+            for (StockEntry entry : candidates) {
+                if (threshold == null && !low.contains(entry.productId)) {
+                    continue;
+                }
+                if (items.size() == size) {
+                    return new CursorPage<>(items, new PageCursor(String.valueOf(last.stock), last.productId).encode());
+                }
+                items.add(products.get(entry.productId));
+                last = entry;
+            }
+            return new CursorPage<>(items, null);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long getDefaultThreshold() {
+        return defaultThreshold;
+    }
+
+    public Map<String, Long> getThresholds() {
+        Map<String, Long> thresholds = new LinkedHashMap<>();
+        thresholds.put("default", defaultThreshold);
+        categoryThresholds.forEach((categoryId, threshold) -> thresholds.put(String.valueOf(categoryId), threshold));
+        return thresholds;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sender.shutdown();
+    }
+
+    public SseEmitter subscribe() {
+        SseEmitter emitter = new SseEmitter(STREAM_TIMEOUT_MS);
+        emitter.onCompletion(() -> subscribers.remove(emitter));
+        emitter.onTimeout(() -> subscribers.remove(emitter));
+        emitter.onError(error -> subscribers.remove(emitter));
+        subscribers.add(emitter);
+        return emitter;
+    }
+
+    private void publish(LowStockAlert alert) {
+        if (!subscribers.isEmpty()) {
+            sender.execute(() -> send(alert));
+        }
+    }
+
+    private void send(LowStockAlert alert) {
+        for (SseEmitter emitter : subscribers) {
+            try {
+                emitter.send(SseEmitter.event().name("low-stock").data(alert));
+            } catch (IOException | IllegalStateException e) {
+                // Client went away; the container completes the emitter, we just stop sending
+                subscribers.remove(emitter);
+            }
+        }
+    }
+
+    private LowStockAlert alert(Product product, String state) {
+        Long categoryId = categoryIdOf(product);
+        return new LowStockAlert(product.getId(), product.getName(), categoryId, product.getStockQuantity(),
+                thresholdFor(categoryId), state);
+    }
+
+    private void add(Product product) {
+        StockEntry entry = new StockEntry(stockOf(product), product.getId());
+        byStock.add(entry);
+        entries.put(product.getId(), entry);
+        products.put(product.getId(), product);
+        if (entry.stock <= thresholdFor(categoryIdOf(product))) {
+            low.add(product.getId());
+        }
+    }
+
+    private void remove(Long productId) {
+        StockEntry entry = entries.remove(productId);
+        if (entry != null) {
+            byStock.remove(entry);
+        }
+        products.remove(productId);
+        low.remove(productId);
+    }
+
+    private long thresholdFor(Long categoryId) {
+        Long threshold = categoryId != null ? categoryThresholds.get(categoryId) : null;
+        return threshold != null ? threshold : defaultThreshold;
+    }
+
+    private long maxThreshold() {
+        long max = defaultThreshold;
+        for (long threshold : categoryThresholds.values()) {
+            max = Math.max(max, threshold);
+        }
+        return max;
+    }
+
+    private static long stockOf(Product product) {
+        return product.getStockQuantity() != null ? product.getStockQuantity() : 0L;
+    }
+
+    private static Long categoryIdOf(Product product) {
+        return product.getCategory() != null ? product.getCategory().getId() : null;
+    }
+
+    // Stock is copied at insert time so later changes to the entity cannot unsort the set
+    private static class StockEntry {
+        private final long stock;
+        private final long productId;
+
+        private StockEntry(long stock, long productId) {
+            this.stock = stock;
+            this.productId = productId;
+        }
+    }
+}
@@ -9,6 +9,7 @@ import backend.user_profile_backend.model.Product;
 import backend.user_profile_backend.model.Quotation;
 import backend.user_profile_backend.model.QuotationItem;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
@@ -24,6 +25,7 @@ public class OrderService {
     private final QuotationRepository quotationRepository;
     private final ProductRepository productRepository;
     private final QuotationItemRepository quotationItemRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Value("${uploads.dir:uploads}")
     private String uploadsDir;
@@ -31,11 +33,13 @@ public class OrderService {
     public OrderService(OrderRepository orderRepository,
                         QuotationRepository quotationRepository,
                         ProductRepository productRepository,
-                        QuotationItemRepository quotationItemRepository) {
+                        QuotationItemRepository quotationItemRepository,
+                        ApplicationEventPublisher eventPublisher) {
         this.orderRepository = orderRepository;
         this.quotationRepository = quotationRepository;
         this.productRepository = productRepository;
         this.quotationItemRepository = quotationItemRepository;
+        this.eventPublisher = eventPublisher;
     }
 
     @Transactional
@@ -98,7 +102,9 @@ public class OrderService {
 
             // Deduct the quantity
             product.setStockQuantity(currentStock - orderedQuantity);
-            productRepository.save(product);
+            Product savedProduct = productRepository.save(product);
+            Long categoryId = savedProduct.getCategory() != null ? savedProduct.getCategory().getId() : null;
+            eventPublisher.publishEvent(new ProductChangeEvent(savedProduct.getId(), savedProduct, categoryId));
         }
     }
 }
\ No newline at end of file
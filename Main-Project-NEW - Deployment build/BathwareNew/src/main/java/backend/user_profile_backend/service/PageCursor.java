@@ -0,0 +1,40 @@
+package backend.user_profile_backend.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+// Opaque keyset cursor: the sort key and id of the last row on a page, base64url encoded.
+// Clients only echo the token back; the endpoint that issued it knows what the key means.
+public class PageCursor {
+
+    private final String key;
+    private final long id;
+
+    public PageCursor(String key, long id) {
+        this.key = key;
+        this.id = id;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String encode() {
+        String raw = key + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static PageCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf(':');
+            return new PageCursor(raw.substring(0, separator), Long.parseLong(raw.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid page cursor: " + token);
+        }
+    }
+}
@@ -0,0 +1,645 @@
+package backend.user_profile_backend.service;
+
+import backend.user_profile_backend.dto.ProductImportError;
+import backend.user_profile_backend.dto.ProductImportResult;
+import backend.user_profile_backend.model.Category;
+import backend.user_profile_backend.model.Product;
+import backend.user_profile_backend.repository.CategoryRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+// Supplier sheet import and catalog export. Uploads are read row by row and written in JDBC
+// batches of catalog.import.batch-size, bypassing the IDENTITY-per-row inserts of
+// ProductService.createProduct. Exports stream straight from a fetch-sized cursor.
+// Both formats use the same columns, so an export can be edited and imported again: a row with
+// an id updates that product, a row without one creates a new product.
+@Service
+public class ProductBulkService {
+
+    public enum Format {
+        CSV,
+        NDJSON;
+
+        // An explicit format wins, otherwise the upload's file extension decides
+        public static Format of(String format, String filename) {
+            if (format != null && !format.isBlank()) {
+                switch (format.trim().toLowerCase(Locale.ROOT)) {
+                    case "csv":
+                        return CSV;
+                    case "ndjson":
+                    case "jsonl":
+                        return NDJSON;
+                    default:
+                        throw new IllegalArgumentException("Unsupported format: " + format);
+                }
+            }
+            String name = filename != null ? filename.toLowerCase(Locale.ROOT) : "";
+            return name.endsWith(".ndjson") || name.endsWith(".jsonl") ? NDJSON : CSV;
+        }
+    }
+
+    private static final int MAX_REPORTED_ERRORS = 1000;
+
+    private static final List<String> COLUMNS = List.of("id", "name", "description", "category", "price",
+            "originalPrice", "discountPercentage", "imageUrl", "rating", "reviewCount", "stockQuantity", "isActive");
+
+    private static final String INSERT_SQL =
+            "INSERT INTO products (name, description, category_id, price, original_price, discount_percentage, " +
+            "image_url, rating, review_count, stock_quantity, is_active, created_at, updated_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    // Columns with an entity default keep their stored value when the row leaves them unset
+    private static final String UPDATE_SQL =
+            "UPDATE products SET name = ?, description = ?, category_id = ?, price = ?, original_price = ?, " +
+            "discount_percentage = COALESCE(?, discount_percentage), image_url = ?, rating = COALESCE(?, rating), " +
+            "review_count = COALESCE(?, review_count), stock_quantity = COALESCE(?, stock_quantity), " +
+            "is_active = COALESCE(?, is_active), updated_at = ? WHERE id = ?";
+
+    private static final String EXPORT_SQL =
+            "SELECT p.id, p.name, p.description, c.name AS category, p.price, p.original_price, " +
+            "p.discount_percentage, p.image_url, p.rating, p.review_count, p.stock_quantity, p.is_active " +
+            "FROM products p JOIN categories c ON c.id = p.category_id ORDER BY p.id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate writeTransaction;
+    private final TransactionTemplate readTransaction;
+    private final CategoryRepository categoryRepository;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int batchSize;
+    private final int fetchSize;
+
+    public ProductBulkService(JdbcTemplate jdbcTemplate,
+                              PlatformTransactionManager transactionManager,
+                              CategoryRepository categoryRepository,
+                              Validator validator,
+                              ObjectMapper objectMapper,
+                              ApplicationEventPublisher eventPublisher,
+                              @Value("${catalog.import.batch-size:500}") int batchSize,
+                              @Value("${catalog.export.fetch-size:500}") int fetchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
+        this.categoryRepository = categoryRepository;
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.eventPublisher = eventPublisher;
+        this.batchSize = batchSize;
+        this.fetchSize = fetchSize;
+    }
+
+    // Each batch commits on its own: a batch the database rejects fails only its own rows
+    public ProductImportResult importProducts(InputStream input, Format format) throws IOException {
+        CategoryLookup categories = new CategoryLookup(categoryRepository.findAll());
+        ProductImportResult result = new ProductImportResult();
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        RowReader rows = format == Format.CSV ? new CsvRowReader(reader) : new NdjsonRowReader(reader, objectMapper);
+        List<ImportRow> chunk = new ArrayList<>(batchSize);
+        try {
+            ImportRow row;
+            while ((row = rows.next()) != null) {
+                chunk.add(row);
+                if (chunk.size() == batchSize) {
+                    writeChunk(chunk, categories, result);
+                    chunk.clear();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                writeChunk(chunk, categories, result);
+            }
+        } finally {
+            // Batches committed before a failure (a dropped upload, a lost connection) are in the
+            // database, so the caches and indexes reload for them too
+            long changed = result.getImported() + result.getUpdated();
+            if (changed > 0) {
+                eventPublisher.publishEvent(new CatalogReloadEvent((int) changed));
+            }
+        }
+        return result;
+    }
+
+    public void exportProducts(OutputStream output, Format format) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        if (format == Format.CSV) {
+            writer.write(String.join(",", COLUMNS));
+            writer.write('\n');
+        }
+        RowCallbackHandler handler = rs -> {
+            try {
+                writeRow(writer, rs, format);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+        try {
+            // A read-only transaction lets PostgreSQL honour the fetch size instead of buffering every row
+            readTransaction.executeWithoutResult(status -> jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement(EXPORT_SQL);
+                statement.setFetchSize(fetchSize);
+                return statement;
+            }, handler));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+    }
+
+    private void writeChunk(List<ImportRow> chunk, CategoryLookup categories, ProductImportResult result) {
+        // Rows are independent until the insert, so conversion and bean validation run in parallel
+        List<RowOutcome> outcomes = chunk.parallelStream()
+                .map(row -> toProduct(row, categories))
+                .toList();
+
+        Set<Long> existing = existingIds(outcomes);
+        List<RowOutcome> valid = new ArrayList<>(outcomes.size());
+        List<RowOutcome> inserts = new ArrayList<>(outcomes.size());
+        List<RowOutcome> updates = new ArrayList<>();
+        for (RowOutcome outcome : outcomes) {
+            if (outcome.error != null) {
+                fail(result, outcome.row.number, outcome.error);
+                continue;
+            }
+            Long id = outcome.product.getId();
+            if (id == null) {
+                inserts.add(outcome);
+            } else if (existing.contains(id)) {
+                updates.add(outcome);
+            } else {
+                fail(result, outcome.row.number, "Product not found with id: " + id);
+                continue;
+            }
+            valid.add(outcome);
+        }
+        if (valid.isEmpty()) {
+            return;
+        }
+
+        try {
+            writeTransaction.executeWithoutResult(status -> {
+                if (!inserts.isEmpty()) {
+                    insert(inserts);
+                }
+                if (!updates.isEmpty()) {
+                    update(updates);
+                }
+            });
+            result.setImported(result.getImported() + inserts.size());
+            result.setUpdated(result.getUpdated() + updates.size());
+        } catch (DataAccessException e) {
+            String message = "Rejected by the database: " + e.getMostSpecificCause().getMessage();
+            for (RowOutcome outcome : valid) {
+                fail(result, outcome.row.number, message);
+            }
+        }
+    }
+
+    private void insert(List<RowOutcome> rows) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(INSERT_SQL, rows, rows.size(), (statement, outcome) -> {
+            Product product = outcome.product;
+            statement.setString(1, product.getName());
+            statement.setString(2, product.getDescription());
+            statement.setLong(3, product.getCategory().getId());
+            statement.setBigDecimal(4, product.getPrice());
+            statement.setBigDecimal(5, product.getOriginalPrice());
+            statement.setLong(6, product.getDiscountPercentage());
+            statement.setString(7, product.getImageUrl());
+            statement.setBigDecimal(8, product.getRating());
+            statement.setLong(9, product.getReviewCount());
+            statement.setLong(10, product.getStockQuantity());
+            statement.setBoolean(11, product.getIsActive());
+            statement.setTimestamp(12, now);
+            statement.setTimestamp(13, now);
+        });
+    }
+
+    private void update(List<RowOutcome> rows) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(UPDATE_SQL, rows, rows.size(), (statement, outcome) -> {
+            Product product = outcome.product;
+            statement.setString(1, product.getName());
+            statement.setString(2, product.getDescription());
+            statement.setLong(3, product.getCategory().getId());
+            statement.setBigDecimal(4, product.getPrice());
+            statement.setBigDecimal(5, product.getOriginalPrice());
+            statement.setObject(6, product.getDiscountPercentage(), Types.BIGINT);
+            statement.setString(7, product.getImageUrl());
+            statement.setObject(8, product.getRating(), Types.DECIMAL);
+            statement.setObject(9, product.getReviewCount(), Types.BIGINT);
+            statement.setObject(10, product.getStockQuantity(), Types.BIGINT);
+            statement.setObject(11, product.getIsActive(), Types.BOOLEAN);
+            statement.setTimestamp(12, now);
+            statement.setLong(13, product.getId());
+        });
+    }
+
+    // Ids named by the chunk's rows that exist, looked up with one query; an unknown id fails its
+    // row instead of silently creating a product under a new id
+    private Set<Long> existingIds(List<RowOutcome> outcomes) {
+        List<Long> ids = outcomes.stream()
+                .filter(outcome -> outcome.product != null && outcome.product.getId() != null)
+                .map(outcome -> outcome.product.getId())
+                .distinct()
+                .toList();
+        if (ids.isEmpty()) {
+            return Set.of();
+        }
+        String placeholders = String.join(", ", Collections.nCopies(ids.size(), "?"));
+        return new HashSet<>(jdbcTemplate.queryForList(
+                "SELECT id FROM products WHERE id IN (" + placeholders + ")", Long.class, ids.toArray()));
+    }
+
+    private RowOutcome toProduct(ImportRow row, CategoryLookup categories) {
+        if (row.error != null) {
+            return new RowOutcome(row, null, row.error);
+        }
+        try {
+            Map<String, String> fields = row.fields;
+            Product product = new Product();
+            product.setId(whole(fields, "id"));
+            boolean update = product.getId() != null;
+            product.setName(text(fields, "name"));
+            product.setDescription(text(fields, "description"));
+            product.setCategory(categories.resolve(text(fields, "categoryid"), text(fields, "category")));
+            product.setPrice(decimal(fields, "price"));
+            product.setOriginalPrice(decimal(fields, "originalprice"));
+            product.setImageUrl(text(fields, "imageurl"));
+            // Unset columns keep the entity defaults on a new product; on an update they stay null
+            // so UPDATE_SQL keeps the stored value
+            if (update || text(fields, "discountpercentage") != null) {
+                product.setDiscountPercentage(whole(fields, "discountpercentage"));
+            }
+            if (update || text(fields, "rating") != null) {
+                product.setRating(decimal(fields, "rating"));
+            }
+            if (update || text(fields, "reviewcount") != null) {
+                product.setReviewCount(whole(fields, "reviewcount"));
+            }
+            if (update || text(fields, "stockquantity") != null) {
+                product.setStockQuantity(whole(fields, "stockquantity"));
+            }
+            if (update || text(fields, "isactive") != null) {
+                product.setIsActive(bool(fields, "isactive"));
+            }
+
+            Set<ConstraintViolation<Product>> violations = validator.validate(product);
+            if (!violations.isEmpty()) {
+                String message = violations.stream()
+                        .map(ConstraintViolation::getMessage)
+                        .sorted()
+                        .collect(Collectors.joining("; "));
+                return new RowOutcome(row, null, message);
+            }
+            return new RowOutcome(row, product, null);
+        } catch (IllegalArgumentException e) {
+            return new RowOutcome(row, null, e.getMessage());
+        }
+    }
+
+    private static void fail(ProductImportResult result, long row, String message) {
+        result.setFailed(result.getFailed() + 1);
+        if (result.getErrors().size() < MAX_REPORTED_ERRORS) {
+            result.getErrors().add(new ProductImportError(row, message));
+        }
+    }
+
+    private void writeRow(Writer writer, ResultSet rs, Format format) throws IOException, SQLException {
+        Object[] values = {
+                rs.getLong("id"), rs.getString("name"), rs.getString("description"), rs.getString("category"),
+                rs.getBigDecimal("price"), rs.getBigDecimal("original_price"), rs.getObject("discount_percentage"),
+                rs.getString("image_url"), rs.getBigDecimal("rating"), rs.getObject("review_count"),
+                rs.getObject("stock_quantity"), rs.getObject("is_active")
+        };
+        if (format == Format.NDJSON) {
+            Map<String, Object> json = new LinkedHashMap<>();
+            for (int i = 0; i < values.length; i++) {
+                json.put(COLUMNS.get(i), values[i]);
+            }
+            writer.write(objectMapper.writeValueAsString(json));
+        } else {
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                writer.write(csvField(values[i]));
+            }
+        }
+        writer.write('\n');
+    }
+
+    private static String csvField(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value instanceof BigDecimal decimal ? decimal.toPlainString() : value.toString();
+        if (text.indexOf(',') >= 0 || text.indexOf('"') >= 0 || text.indexOf('\n') >= 0 || text.indexOf('\r') >= 0) {
+            return '"' + text.replace("\"", "\"\"") + '"';
+        }
+        return text;
+    }
+
+    // Column names match case-insensitively and ignore spaces and underscores
+    private static String columnKey(String column) {
+        StringBuilder key = new StringBuilder(column.length());
+        for (int i = 0; i < column.length(); i++) {
+            char ch = column.charAt(i);
+            if (Character.isLetterOrDigit(ch)) {
+                key.append(Character.toLowerCase(ch));
+            }
+        }
+        return key.toString();
+    }
+
+    private static String text(Map<String, String> fields, String key) {
+        String value = fields.get(key);
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+
+    private static BigDecimal decimal(Map<String, String> fields, String key) {
+        String value = text(fields, key);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return new BigDecimal(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + key + ": " + value);
+        }
+    }
+
+    private static Long whole(Map<String, String> fields, String key) {
+        String value = text(fields, key);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Long.valueOf(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + key + ": " + value);
+        }
+    }
+
+    private static Boolean bool(Map<String, String> fields, String key) {
+        String value = text(fields, key);
+        if (value == null) {
+            return null;
+        }
+        switch (value.toLowerCase(Locale.ROOT)) {
+            case "true":
+            case "yes":
+            case "1":
+                return true;
+            case "false":
+            case "no":
+            case "0":
+                return false;
+            default:
+                throw new IllegalArgumentException("Invalid " + key + ": " + value);
+        }
+    }
+
+    // Loaded once per import; rows name their category instead of each looking it up
+    private static class CategoryLookup {
+        private final Map<String, Category> byName = new HashMap<>();
+        private final Map<Long, Category> byId = new HashMap<>();
+
+        private CategoryLookup(List<Category> categories) {
+            for (Category category : categories) {
+                byName.put(category.getName().trim().toLowerCase(Locale.ROOT), category);
+                byId.put(category.getId(), category);
+            }
+        }
+
+        // A missing category is left to bean validation; an unknown one fails the row
+        private Category resolve(String id, String name) {
+            if (id != null) {
+                Category category;
+                try {
+                    category = byId.get(Long.valueOf(id));
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Invalid categoryid: " + id);
+                }
+                if (category == null) {
+                    throw new IllegalArgumentException("Category not found with id: " + id);
+                }
+                return category;
+            }
+            if (name != null) {
+                Category category = byName.get(name.toLowerCase(Locale.ROOT));
+                if (category == null) {
+                    throw new IllegalArgumentException("Category not found: " + name);
+                }
+                return category;
+            }
+            return null;
+        }
+    }
+
+    private static class ImportRow {
+        private final long number;
+        private final Map<String, String> fields;
+        private final String error;
+
+        private ImportRow(long number, Map<String, String> fields, String error) {
+            this.number = number;
+            this.fields = fields;
+            this.error = error;
+        }
+    }
+
+    private static class RowOutcome {
+        private final ImportRow row;
+        private final Product product;
+        private final String error;
+
+        private RowOutcome(ImportRow row, Product product, String error) {
+            this.row = row;
+            this.product = product;
+            this.error = error;
+        }
+    }
+
+    private interface RowReader {
+        // null once the input is exhausted
+        ImportRow next() throws IOException;
+    }
+
+    // RFC 4180 records: quoted fields may hold commas, doubled quotes and line breaks
+    private static class CsvRowReader implements RowReader {
+        private final BufferedReader reader;
+        private List<String> header;
+        private long number;
+
+        private CsvRowReader(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public ImportRow next() throws IOException {
+            if (header == null) {
+                List<String> columns = readRecord();
+                if (columns == null) {
+                    return null;
+                }
+                header = new ArrayList<>(columns.size());
+                for (String column : columns) {
+                    header.add(columnKey(column)); // also drops a spreadsheet BOM
+                }
+            }
+            List<String> values = readRecord();
+            if (values == null) {
+                return null;
+            }
+            number++;
+            if (values.size() > header.size()) {
+                return new ImportRow(number, null,
+                        "Expected at most " + header.size() + " columns but found " + values.size());
+            }
+            Map<String, String> fields = new HashMap<>();
+            for (int i = 0; i < values.size(); i++) {
+                fields.put(header.get(i), values.get(i));
+            }
+            return new ImportRow(number, fields, null);
+        }
+
+        // Skips blank lines; null at end of input
+        private List<String> readRecord() throws IOException {
+            String line;
+            do {
+                line = reader.readLine();
+                if (line == null) {
+                    return null;
+                }
+            } while (line.isBlank());
+
+            List<String> values = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            while (true) {
+                for (int i = 0; i < line.length(); i++) {
+                    char ch = line.charAt(i);
+                    if (quoted) {
+                        if (ch != '"') {
+                            field.append(ch);
+                        } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                            field.append('"');
+                            i++;
+                        } else {
+                            quoted = false;
+                        }
+                    } else if (ch == '"') {
+                        quoted = true;
+                    } else if (ch == ',') {
+                        values.add(field.toString());
+                        field.setLength(0);
+                    } else {
+                        field.append(ch);
+                    }
+                }
+                if (!quoted) {
+                    break;
+                }
+                line = reader.readLine();
+                if (line == null) {
+                    break;
+                }
+                field.append('\n');
+            }
+            values.add(field.toString());
+            return values;
+        }
+    }
+
+    // One JSON object per line; a nested category object may carry id and/or name
+    private static class NdjsonRowReader implements RowReader {
+        private final BufferedReader reader;
+        private final ObjectMapper objectMapper;
+        private long number;
+
+        private NdjsonRowReader(BufferedReader reader, ObjectMapper objectMapper) {
+            this.reader = reader;
+            this.objectMapper = objectMapper;
+        }
+
+        @Override
+        public ImportRow next() throws IOException {
+            String line;
+            do {
+                line = reader.readLine();
+                if (line == null) {
+                    return null;
+                }
+            } while (line.isBlank());
+            number++;
+
+            JsonNode node;
+            try {
+                node = objectMapper.readTree(line);
+            } catch (JsonProcessingException e) {
+                return new ImportRow(number, null, "Malformed JSON: " + e.getOriginalMessage());
+            }
+            if (!node.isObject()) {
+                return new ImportRow(number, null, "Expected a JSON object");
+            }
+
+            Map<String, String> fields = new HashMap<>();
+            for (Map.Entry<String, JsonNode> entry : node.properties()) {
+                String key = columnKey(entry.getKey());
+                JsonNode value = entry.getValue();
+                if (key.equals("category") && value.isObject()) {
+                    if (value.hasNonNull("id")) {
+                        fields.put("categoryid", value.get("id").asText());
+                    }
+                    if (value.hasNonNull("name")) {
+                        fields.put("category", value.get("name").asText());
+                    }
+                } else if (value.isValueNode() && !value.isNull()) {
+                    fields.put(key, value.asText());
+                }
+            }
+            return new ImportRow(number, fields, null);
+        }
+    }
+}
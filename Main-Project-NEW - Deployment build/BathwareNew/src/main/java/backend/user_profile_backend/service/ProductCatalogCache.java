@@ -0,0 +1,137 @@
+package backend.user_profile_backend.service;
+
+import backend.user_profile_backend.model.Product;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+// Read-through cache for the public catalog reads in ProductService.
+// Entries are kept in LRU order up to catalog.cache.max-entries. Every invalidation bumps
+// a version number, and a load that started before the bump is not stored, so a reader
+// racing a write can never put stale rows back into the cache.
+@Component
+public class ProductCatalogCache {
+
+    private static final String ALL_PRODUCTS_KEY = "all";
+    private static final String CATEGORY_KEY_PREFIX = "category:";
+    private static final String PRODUCT_KEY_PREFIX = "product:";
+
+    private final Object lock = new Object();
+    private final Map<String, Object> entries;
+    private long version;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public ProductCatalogCache(@Value("${catalog.cache.max-entries:500}") int maxEntries) {
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Object> eldest) {
+                if (size() > maxEntries) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public List<Product> getAllProducts(Supplier<List<Product>> loader) {
+        return load(ALL_PRODUCTS_KEY, () -> List.copyOf(loader.get()));
+    }
+
+    public List<Product> getProductsByCategory(Long categoryId, Supplier<List<Product>> loader) {
+        return load(CATEGORY_KEY_PREFIX + categoryId, () -> List.copyOf(loader.get()));
+    }
+
+    public Optional<Product> getProduct(Long id, Supplier<Optional<Product>> loader) {
+        // Only found products are cached; unknown ids fall through to the loader every time
+        return Optional.ofNullable(load(PRODUCT_KEY_PREFIX + id, () -> loader.get().orElse(null)));
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T load(String key, Supplier<T> loader) {
+        long seenVersion;
+        synchronized (lock) {
+            Object cached = entries.get(key);
+            if (cached != null) {
+                hits.incrementAndGet();
+                return (T) cached;
+            }
+            seenVersion = version;
+        }
+
+        misses.incrementAndGet();
+        T value = loader.get();
+
+        synchronized (lock) {
+            if (value != null && version == seenVersion) {
+                entries.put(key, value);
+            }
+        }
+        return value;
+    }
+
+    // Runs before the other catalog listeners, some of which reload through this cache
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChange(ProductChangeEvent event) {
+        synchronized (lock) {
+            version++;
+            entries.remove(PRODUCT_KEY_PREFIX + event.getProductId());
+            entries.remove(ALL_PRODUCTS_KEY);
+            if (event.getPreviousCategoryId() != null) {
+                entries.remove(CATEGORY_KEY_PREFIX + event.getPreviousCategoryId());
+            }
+            if (event.getCategoryId() != null) {
+                entries.remove(CATEGORY_KEY_PREFIX + event.getCategoryId());
+            }
+        }
+        invalidations.incrementAndGet();
+    }
+
+    // Cached products embed their category, so any category write drops everything
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCategoryChange(CategoryChangeEvent event) {
+        clear();
+    }
+
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogReload(CatalogReloadEvent event) {
+        clear();
+    }
+
+    public void clear() {
+        synchronized (lock) {
+            version++;
+            entries.clear();
+        }
+        invalidations.incrementAndGet();
+    }
+
+    public Map<String, Long> getStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        synchronized (lock) {
+            stats.put("size", (long) entries.size());
+            stats.put("version", version);
+        }
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        stats.put("evictions", evictions.get());
+        stats.put("invalidations", invalidations.get());
+        return stats;
+    }
+}
@@ -0,0 +1,42 @@
+package backend.user_profile_backend.service;
+
+import backend.user_profile_backend.model.Product;
+
+// Published by the product write paths so in-memory catalog structures can follow the database.
+// Listeners receive it after the surrounding transaction commits.
+public class ProductChangeEvent {
+
+    private final Long productId;
+    private final Product product;
+    private final Long previousCategoryId;
+
+    // product is the saved state, or null when the row was permanently deleted
+    public ProductChangeEvent(Long productId, Product product, Long previousCategoryId) {
+        this.productId = productId;
+        this.product = product;
+        this.previousCategoryId = previousCategoryId;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public Product getProduct() {
+        return product;
+    }
+
+    public Long getPreviousCategoryId() {
+        return previousCategoryId;
+    }
+
+    public Long getCategoryId() {
+        if (product == null || product.getCategory() == null) {
+            return null;
+        }
+        return product.getCategory().getId();
+    }
+
+    public boolean isDeleted() {
+        return product == null;
+    }
+}
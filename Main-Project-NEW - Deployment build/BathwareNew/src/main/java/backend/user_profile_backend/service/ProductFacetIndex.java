@@ -0,0 +1,337 @@
+package backend.user_profile_backend.service;
+
+import backend.user_profile_backend.dto.ProductCard;
+import backend.user_profile_backend.dto.ProductFilterResult;
+import backend.user_profile_backend.dto.ProductView;
+import backend.user_profile_backend.model.Product;
+import backend.user_profile_backend.repository.ProductRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Faceted filtering over the active catalog. Every product gets an ordinal and each facet
+// value keeps a BitSet of ordinals, so any combination of category, price range, in-stock and
+// discounted filters is a handful of word-wise ANDs. Price facets are bucketed by
+// catalog.facets.price-buckets; only the buckets cut by the requested range are checked
+// product by product.
+// Ordinals follow product id order, so a page is a binary search for the cursor and a walk of
+// at most size + 1 set bits. New products get the next ordinal; one whose id falls before the
+// last ordinal (an older product activated again) lays the ordinals out afresh, as does a
+// removal that leaves more empty ordinals than products.
+@Component
+public class ProductFacetIndex {
+
+    private final ProductRepository productRepository;
+    private final BigDecimal[] priceEdges;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // Kept for removed products too, so a product coming back reuses its ordinal
+    private final Map<Long, Integer> ordinals = new HashMap<>();
+    // Indexed by ordinal; null for a removed product
+    private final List<Product> products = new ArrayList<>();
+    // Product id of each ordinal, ascending
+    private final List<Long> ordinalIds = new ArrayList<>();
+    private int removedOrdinals;
+
+    private final BitSet active = new BitSet();
+    private final Map<Long, BitSet> categories = new HashMap<>();
+    private final BitSet[] priceBuckets;
+    private final BitSet inStock = new BitSet();
+    private final BitSet discounted = new BitSet();
+    private final RebuildLog<ProductChangeEvent> changeLog = new RebuildLog<>();
+    private volatile boolean ready;
+
+    public ProductFacetIndex(ProductRepository productRepository,
+                             @Value("${catalog.facets.price-buckets:5000,10000,20000,50000}") BigDecimal[] priceEdges) {
+        this.productRepository = productRepository;
+        this.priceEdges = priceEdges.clone();
+        this.priceBuckets = new BitSet[priceEdges.length + 1];
+        for (int i = 0; i < priceBuckets.length; i++) {
+            priceBuckets[i] = new BitSet();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        try (RebuildLog.Reload<ProductChangeEvent> reload = changeLog.begin()) {
+            List<Product> activeProducts = productRepository.findByIsActiveTrue();
+            lock.writeLock().lock();
+            try {
+                layout(new ArrayList<>(activeProducts));
+                reload.replay(this::apply);
+                ready = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChange(ProductChangeEvent event) {
+        lock.writeLock().lock();
+        try {
+            changeLog.record(event);
+            apply(event);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Indexed products embed their category, so a category write reloads the index
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCategoryChange(CategoryChangeEvent event) {
+        rebuild();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogReload(CatalogReloadEvent event) {
+        rebuild();
+    }
+
+    // Null arguments leave that facet unfiltered; inStock and discounted only filter when true.
+    // Matches are returned in id order, paged after the cursor's id when one is given.
+    public ProductFilterResult filter(Long categoryId, BigDecimal minPrice, BigDecimal maxPrice,
+                                      Boolean onlyInStock, Boolean onlyDiscounted,
+                                      PageCursor cursor, int size, ProductView view) {
+        lock.readLock().lock();
+        try {
+            BitSet categoryMask = null;
+            if (categoryId != null) {
+                categoryMask = categories.getOrDefault(categoryId, new BitSet());
+            }
+            BitSet priceMask = minPrice != null || maxPrice != null ? priceMask(minPrice, maxPrice) : null;
+            BitSet stockMask = Boolean.TRUE.equals(onlyInStock) ? inStock : null;
+            BitSet discountMask = Boolean.TRUE.equals(onlyDiscounted) ? discounted : null;
+
+            BitSet matches = intersect(categoryMask, priceMask, stockMask, discountMask);
+
+            ProductFilterResult result = new ProductFilterResult();
+            result.setTotal(matches.cardinality());
+
+            BitSet withoutCategory = intersect(null, priceMask, stockMask, discountMask);
+            Map<Long, Integer> categoryCounts = new LinkedHashMap<>();
+            for (Map.Entry<Long, BitSet> category : categories.entrySet()) {
+                int count = countAnd(withoutCategory, category.getValue());
+                if (count > 0) {
+                    categoryCounts.put(category.getKey(), count);
+                }
+            }
+            result.setCategoryCounts(categoryCounts);
+
+            BitSet withoutPrice = intersect(categoryMask, null, stockMask, discountMask);
+            Map<String, Integer> priceRangeCounts = new LinkedHashMap<>();
+            for (int i = 0; i < priceBuckets.length; i++) {
+                priceRangeCounts.put(bucketLabel(i), countAnd(withoutPrice, priceBuckets[i]));
+            }
+            result.setPriceRangeCounts(priceRangeCounts);
+
+            result.setInStockCount(countAnd(intersect(categoryMask, priceMask, null, discountMask), inStock));
+            result.setDiscountedCount(countAnd(intersect(categoryMask, priceMask, stockMask, null), discounted));
+
+            long afterId = cursor != null ? cursor.getId() : 0L;
+            List<Product> page = new ArrayList<>(size + 1);
+            for (int ordinal = matches.nextSetBit(firstOrdinalAfter(afterId));
+                 ordinal >= 0 && page.size() <= size;
+                 ordinal = matches.nextSetBit(ordinal + 1)) {
+                page.add(products.get(ordinal));
+            }
+            if (page.size() > size) {
+                page = new ArrayList<>(page.subList(0, size));
+                result.setNextCursor(new PageCursor("", page.get(size - 1).getId()).encode());
+            }
+            List<ProductCard> items = new ArrayList<>(page.size());
+            for (Product product : page) {
+                items.add(view.render(product));
+            }
+            result.setItems(items);
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int firstOrdinalAfter(long afterId) {
+        int found = Collections.binarySearch(ordinalIds, afterId);
+        return found >= 0 ? found + 1 : -found - 1;
+    }
+
+    private BitSet intersect(BitSet... masks) {
+        BitSet result = (BitSet) active.clone();
+        for (BitSet mask : masks) {
+            if (mask != null) {
+                result.and(mask);
+            }
+        }
+        return result;
+    }
+
+    private static int countAnd(BitSet base, BitSet facet) {
+        BitSet both = (BitSet) base.clone();
+        both.and(facet);
+        return both.cardinality();
+    }
+
+    private BitSet priceMask(BigDecimal minPrice, BigDecimal maxPrice) {
+        BitSet mask = new BitSet();
+        for (int i = 0; i < priceBuckets.length; i++) {
+            BigDecimal lower = i == 0 ? null : priceEdges[i - 1];
+            BigDecimal upper = i == priceEdges.length ? null : priceEdges[i]; // exclusive
+
+            boolean below = minPrice != null && upper != null && upper.compareTo(minPrice) <= 0;
+            boolean above = maxPrice != null && lower != null && lower.compareTo(maxPrice) > 0;
+            if (below || above) {
+                continue;
+            }
+
+            boolean coveredFromBelow = minPrice == null || (lower != null && lower.compareTo(minPrice) >= 0);
+            boolean coveredFromAbove = maxPrice == null || (upper != null && upper.compareTo(maxPrice) <= 0);
+            if (coveredFromBelow && coveredFromAbove) {
+                mask.or(priceBuckets[i]);
+                continue;
+            }
+
+            BitSet bucket = priceBuckets[i];
+            for (int ordinal = bucket.nextSetBit(0); ordinal >= 0; ordinal = bucket.nextSetBit(ordinal + 1)) {
+                BigDecimal price = products.get(ordinal).getPrice();
+                if ((minPrice == null || price.compareTo(minPrice) >= 0)
+                        && (maxPrice == null || price.compareTo(maxPrice) <= 0)) {
+                    mask.set(ordinal);
+                }
+            }
+        }
+        return mask;
+    }
+
+    private int bucketOf(BigDecimal price) {
+        int bucket = 0;
+        while (bucket < priceEdges.length && price.compareTo(priceEdges[bucket]) >= 0) {
+            bucket++;
+        }
+        return bucket;
+    }
+
+    private String bucketLabel(int bucket) {
+        if (bucket == priceEdges.length) {
+            return priceEdges.length == 0 ? "0+" : priceEdges[bucket - 1].toPlainString() + "+";
+        }
+        String lower = bucket == 0 ? "0" : priceEdges[bucket - 1].toPlainString();
+        return lower + "-" + priceEdges[bucket].toPlainString();
+    }
+
+    private void apply(ProductChangeEvent event) {
+        remove(event.getProductId());
+        Product product = event.getProduct();
+        if (product != null && Boolean.TRUE.equals(product.getIsActive())) {
+            add(product);
+        }
+    }
+
+    // Replaces the whole index with the given products, ordinals in id order
+    private void layout(List<Product> live) {
+        ordinals.clear();
+        products.clear();
+        ordinalIds.clear();
+        removedOrdinals = 0;
+        active.clear();
+        categories.clear();
+        for (BitSet bucket : priceBuckets) {
+            bucket.clear();
+        }
+        inStock.clear();
+        discounted.clear();
+        live.sort(Comparator.comparing(Product::getId));
+        for (Product product : live) {
+            int ordinal = products.size();
+            products.add(product);
+            ordinalIds.add(product.getId());
+            ordinals.put(product.getId(), ordinal);
+            mark(ordinal, product);
+        }
+    }
+
+    private List<Product> liveProducts() {
+        List<Product> live = new ArrayList<>(products.size() - removedOrdinals + 1);
+        for (Product product : products) {
+            if (product != null) {
+                live.add(product);
+            }
+        }
+        return live;
+    }
+
+    private void add(Product product) {
+        Integer ordinal = ordinals.get(product.getId());
+        if (ordinal != null) {
+            if (products.set(ordinal, product) == null) {
+                removedOrdinals--;
+            }
+        } else if (ordinalIds.isEmpty() || product.getId() > ordinalIds.get(ordinalIds.size() - 1)) {
+            ordinal = products.size();
+            products.add(product);
+            ordinalIds.add(product.getId());
+            ordinals.put(product.getId(), ordinal);
+        } else {
+            List<Product> live = liveProducts();
+            live.add(product);
+            layout(live);
+            return;
+        }
+        mark(ordinal, product);
+    }
+
+    private void mark(int ordinal, Product product) {
+        active.set(ordinal);
+        if (product.getCategory() != null) {
+            categories.computeIfAbsent(product.getCategory().getId(), id -> new BitSet()).set(ordinal);
+        }
+        if (product.getPrice() != null) {
+            priceBuckets[bucketOf(product.getPrice())].set(ordinal);
+        }
+        if (product.getStockQuantity() != null && product.getStockQuantity() > 0) {
+            inStock.set(ordinal);
+        }
+        if (product.getDiscountPercentage() != null && product.getDiscountPercentage() > 0) {
+            discounted.set(ordinal);
+        }
+    }
+
+    private void remove(Long productId) {
+        Integer ordinal = ordinals.get(productId);
+        if (ordinal == null || products.get(ordinal) == null) {
+            return;
+        }
+        active.clear(ordinal);
+        categories.values().removeIf(bits -> {
+            bits.clear(ordinal);
+            return bits.isEmpty();
+        });
+        for (BitSet bucket : priceBuckets) {
+            bucket.clear(ordinal);
+        }
+        inStock.clear(ordinal);
+        discounted.clear(ordinal);
+        products.set(ordinal, null);
+        removedOrdinals++;
+        if (removedOrdinals > products.size() - removedOrdinals) {
+            layout(liveProducts());
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package backend.user_profile_backend.service;
+
+import backend.user_profile_backend.model.Product;
+import backend.user_profile_backend.repository.ProductRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+// Home page rankings (top rated, latest, most discounted) kept as sorted sets of the
+// active catalog. Each write re-positions one product in O(log n); reading the top N
+// walks the first N entries without touching the database.
+@Component
+public class ProductLeaderboards {
+
+    private final ProductRepository productRepository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Board<BigDecimal> topRated = new Board<>(
+            product -> product.getRating() != null ? product.getRating() : BigDecimal.ZERO);
+    private final Board<LocalDateTime> latest = new Board<>(
+            product -> product.getCreatedAt() != null ? product.getCreatedAt() : LocalDateTime.MIN);
+    private final Board<Long> discounted = new Board<>(
+            product -> product.getDiscountPercentage() != null && product.getDiscountPercentage() > 0
+                    ? product.getDiscountPercentage() : null);
+    private final RebuildLog<ProductChangeEvent> changeLog = new RebuildLog<>();
+    private volatile boolean ready;
+
+    public ProductLeaderboards(ProductRepository productRepository) {
+        this.productRepository = productRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        try (RebuildLog.Reload<ProductChangeEvent> reload = changeLog.begin()) {
+            List<Product> products = productRepository.findByIsActiveTrue();
+            lock.writeLock().lock();
+            try {
+                topRated.clear();
+                latest.clear();
+                discounted.clear();
+                for (Product product : products) {
+                    put(product);
+                }
+                reload.replay(this::apply);
+                ready = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChange(ProductChangeEvent event) {
+        lock.writeLock().lock();
+        try {
+            changeLog.record(event);
+            apply(event);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Ranked products embed their category, so a category write reloads the boards
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCategoryChange(CategoryChangeEvent event) {
+        rebuild();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogReload(CatalogReloadEvent event) {
+        rebuild();
+    }
+
+    public List<Product> getTopRated(int limit) {
+        return top(topRated, limit);
+    }
+
+    public List<Product> getLatest(int limit) {
+        return top(latest, limit);
+    }
+
+    public List<Product> getDiscounted(int limit) {
+        return top(discounted, limit);
+    }
+
+    private List<Product> top(Board<?> board, int limit) {
+        lock.readLock().lock();
+        try {
+            return board.top(limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void apply(ProductChangeEvent event) {
+        topRated.remove(event.getProductId());
+        latest.remove(event.getProductId());
+        discounted.remove(event.getProductId());
+        Product product = event.getProduct();
+        if (product != null && Boolean.TRUE.equals(product.getIsActive())) {
+            put(product);
+        }
+    }
+
+    private void put(Product product) {
+        topRated.put(product);
+        latest.put(product);
+        discounted.put(product);
+    }
+
+    // Highest key first, ties broken by ascending id. A null key keeps the product off the board.
+    private static class Board<K extends Comparable<? super K>> {
+
+        private final Function<Product, K> keyOf;
+        private final TreeSet<Entry<K>> ranking = new TreeSet<>(
+                Comparator.<Entry<K>, K>comparing(entry -> entry.key, Comparator.reverseOrder())
+                        .thenComparing(entry -> entry.product.getId()));
+        private final Map<Long, Entry<K>> byId = new HashMap<>();
+
+        private Board(Function<Product, K> keyOf) {
+            this.keyOf = keyOf;
+        }
+
+        private void put(Product product) {
+            K key = keyOf.apply(product);
+            if (key == null) {
+                return;
+            }
+            Entry<K> entry = new Entry<>(key, product);
+            ranking.add(entry);
+            byId.put(product.getId(), entry);
+        }
+
+        private void remove(Long productId) {
+            Entry<K> entry = byId.remove(productId);
+            if (entry != null) {
+                ranking.remove(entry);
+            }
+        }
+
+        private void clear() {
+            ranking.clear();
+            byId.clear();
+        }
+
+        private List<Product> top(int limit) {
+            List<Product> products = new ArrayList<>(Math.min(Math.max(limit, 0), ranking.size()));
+            Iterator<Entry<K>> iterator = ranking.iterator();
+            while (products.size() < limit && iterator.hasNext()) {
+                products.add(iterator.next().product);
+            }
+            return products;
+        }
+    }
+
+    private static class Entry<K> {
+        private final K key;
+        private final Product product;
+
+        private Entry(K key, Product product) {
+            this.key = key;
+            this.product = product;
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package backend.user_profile_backend.service;
+
+import backend.user_profile_backend.dto.CursorPage;
+import backend.user_profile_backend.model.Product;
+import backend.user_profile_backend.repository.ProductRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Price range lookups for the active catalog. Prices are stored as long minor units (cents)
+// in sorted primitive arrays, one global and one per category, next to a parallel array of
+// product ids. A range query is two binary searches and a slice, in (price, id) order.
+@Component
+public class ProductPriceIndex {
+
+    private final ProductRepository productRepository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final PriceArray global = new PriceArray();
+    private final Map<Long, PriceArray> byCategory = new HashMap<>();
+    private final Map<Long, Product> products = new HashMap<>();
+    // Where each product currently sits, independent of later changes to the entity itself
+    private final Map<Long, Slot> slots = new HashMap<>();
+    private final RebuildLog<ProductChangeEvent> changeLog = new RebuildLog<>();
+    private volatile boolean ready;
+
+    public ProductPriceIndex(ProductRepository productRepository) {
+        this.productRepository = productRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        try (RebuildLog.Reload<ProductChangeEvent> reload = changeLog.begin()) {
+            List<Product> activeProducts = productRepository.findByIsActiveTrue();
+            lock.writeLock().lock();
+            try {
+                global.clear();
+                byCategory.clear();
+                products.clear();
+                slots.clear();
+                for (Product product : activeProducts) {
+                    add(product);
+                }
+                reload.replay(this::apply);
+                ready = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChange(ProductChangeEvent event) {
+        lock.writeLock().lock();
+        try {
+            changeLog.record(event);
+            apply(event);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void apply(ProductChangeEvent event) {
+        Product product = event.getProduct();
+        boolean indexed = product != null && Boolean.TRUE.equals(product.getIsActive()) && product.getPrice() != null;
+        Slot previous = slots.get(event.getProductId());
+        if (previous != null && indexed
+                && previous.price == minorUnits(product.getPrice())
+                && previous.categoryId != null && previous.categoryId.equals(categoryIdOf(product))) {
+            // Same slot in every array, only the returned entity changes
+            products.put(product.getId(), product);
+            return;
+        }
+        remove(event.getProductId());
+        if (indexed) {
+            add(product);
+        }
+    }
+
+    // Indexed products embed their category, so a category write reloads the index
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCategoryChange(CategoryChangeEvent event) {
+        rebuild();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogReload(CatalogReloadEvent event) {
+        rebuild();
+    }
+
+    // categoryId may be null for the whole catalog; bounds are inclusive
+    public List<Product> findByPriceRange(BigDecimal minPrice, BigDecimal maxPrice, Long categoryId) {
+        lock.readLock().lock();
+        try {
+            PriceArray array = arrayFor(categoryId);
+            if (array == null) {
+                return List.of();
+            }
+            int from = array.lowerBound(ceilMinorUnits(minPrice), Long.MIN_VALUE);
+            int to = array.lowerBound(floorMinorUnits(maxPrice), Long.MAX_VALUE);
+            return slice(array, from, to);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Keyset page in the same (price, id) order as ProductRepository.findByPriceRangeAfter
+    public CursorPage<Product> findByPriceRangePage(BigDecimal minPrice, BigDecimal maxPrice, Long categoryId,
+                                                    PageCursor cursor, int size) {
+        lock.readLock().lock();
+        try {
+            PriceArray array = arrayFor(categoryId);
+            if (array == null) {
+                return new CursorPage<>(List.of(), null);
+            }
+            int from = cursor == null
+                    ? array.lowerBound(ceilMinorUnits(minPrice), Long.MIN_VALUE)
+                    : array.lowerBound(minorUnits(new BigDecimal(cursor.getKey())), cursor.getId() + 1);
+            from = Math.max(from, array.lowerBound(ceilMinorUnits(minPrice), Long.MIN_VALUE));
+            int to = array.lowerBound(floorMinorUnits(maxPrice), Long.MAX_VALUE);
+            if (from >= to) {
+                return new CursorPage<>(List.of(), null);
+            }
+
+            int end = Math.min(from + size, to);
+            List<Product> items = slice(array, from, end);
+            String nextCursor = null;
+            if (end < to) {
+                nextCursor = new PageCursor(BigDecimal.valueOf(array.prices[end - 1], 2).toPlainString(),
+                        array.ids[end - 1]).encode();
+            }
+            return new CursorPage<>(items, nextCursor);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private PriceArray arrayFor(Long categoryId) {
+        return categoryId == null ? global : byCategory.get(categoryId);
+    }
+
+    private List<Product> slice(PriceArray array, int from, int to) {
+        List<Product> result = new ArrayList<>(Math.max(to - from, 0));
+        for (int i = from; i < to; i++) {
+            result.add(products.get(array.ids[i]));
+        }
+        return result;
+    }
+
+    private void add(Product product) {
+        long price = minorUnits(product.getPrice());
+        Long categoryId = categoryIdOf(product);
+        products.put(product.getId(), product);
+        slots.put(product.getId(), new Slot(price, categoryId));
+        global.insert(price, product.getId());
+        if (categoryId != null) {
+            byCategory.computeIfAbsent(categoryId, id -> new PriceArray()).insert(price, product.getId());
+        }
+    }
+
+    private void remove(Long productId) {
+        Slot previous = slots.remove(productId);
+        if (previous == null) {
+            return;
+        }
+        products.remove(productId);
+        global.delete(previous.price, productId);
+        if (previous.categoryId != null) {
+            PriceArray array = byCategory.get(previous.categoryId);
+            array.delete(previous.price, productId);
+            if (array.size == 0) {
+                byCategory.remove(previous.categoryId);
+            }
+        }
+    }
+
+    private static Long categoryIdOf(Product product) {
+        return product.getCategory() != null ? product.getCategory().getId() : null;
+    }
+
+    private static long minorUnits(BigDecimal price) {
+        return price.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+
+    private static long ceilMinorUnits(BigDecimal price) {
+        return price.movePointRight(2).setScale(0, RoundingMode.CEILING).longValueExact();
+    }
+
+    private static long floorMinorUnits(BigDecimal price) {
+        return price.movePointRight(2).setScale(0, RoundingMode.FLOOR).longValueExact();
+    }
+
+    private static class Slot {
+        private final long price;
+        private final Long categoryId;
+
+        private Slot(long price, Long categoryId) {
+            this.price = price;
+            this.categoryId = categoryId;
+        }
+    }
+
+    // Sorted by (price, id); inserts and deletes shift the tail with System.arraycopy
+    private static class PriceArray {
+        private long[] prices = new long[16];
+        private long[] ids = new long[16];
+        private int size;
+
+        // First index whose (price, id) is >= the given pair
+        private int lowerBound(long price, long id) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (prices[mid] < price || (prices[mid] == price && ids[mid] < id)) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        private void insert(long price, long id) {
+            if (size == prices.length) {
+                prices = Arrays.copyOf(prices, size * 2);
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            int index = lowerBound(price, id);
+            System.arraycopy(prices, index, prices, index + 1, size - index);
+            System.arraycopy(ids, index, ids, index + 1, size - index);
+            prices[index] = price;
+            ids[index] = id;
+            size++;
+        }
+
+        private void delete(long price, long id) {
+            int index = lowerBound(price, id);
+            if (index < size && prices[index] == price && ids[index] == id) {
+                System.arraycopy(prices, index + 1, prices, index, size - index - 1);
+                System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+                size--;
+            }
+        }
+
+        private void clear() {
+            size = 0;
+        }
+    }
+}
@@ -0,0 +1,475 @@
+package backend.user_profile_backend.service;
+
+import backend.user_profile_backend.dto.CursorPage;
+import backend.user_profile_backend.model.Product;
+import backend.user_profile_backend.repository.ProductRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// In-memory inverted index over the name and description of active products.
+// Every query token has to match a product, either exactly, as a prefix or any other substring
+// of an indexed term (so "asin" still finds "basin", as the LIKE search did) or within one edit
+// of it. Matches are ranked with BM25, name hits counting double. The ranking of recent queries
+// is kept until the index changes, so paging through results does not score them again.
+@Component
+public class ProductSearchIndex {
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final float NAME_WEIGHT = 2.0f;
+    private static final float DESCRIPTION_WEIGHT = 1.0f;
+
+    private static final double PREFIX_WEIGHT = 0.7;
+    private static final double INFIX_WEIGHT = 0.5;
+    private static final double FUZZY_WEIGHT = 0.5;
+    private static final int MIN_PREFIX_LENGTH = 2;
+    private static final int GRAM_LENGTH = 3;
+    private static final int MIN_FUZZY_LENGTH = 4;
+    private static final int MAX_RANKED_QUERIES = 64;
+
+    private final ProductRepository productRepository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, IndexedProduct> documents = new HashMap<>();
+    // term -> (product id -> weighted term frequency), sorted so prefixes are a range scan
+    private final TreeMap<String, Map<Long, Float>> postings = new TreeMap<>();
+    // single-deletion variant -> indexed terms producing it, used for typo tolerance
+    private final Map<String, Set<String>> deletions = new HashMap<>();
+    // trigram -> indexed terms containing it, used for substring matches
+    private final Map<String, Set<String>> grams = new HashMap<>();
+    private double totalLength;
+    // Bumped on every change, under the write lock; rankings from an older version are stale
+    private long version;
+    private final RebuildLog<ProductChangeEvent> changeLog = new RebuildLog<>();
+    private volatile boolean ready;
+
+    // "tokens|categoryId" -> ranking, least recently used first
+    private final Map<String, Ranking> rankings = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Ranking> eldest) {
+            return size() > MAX_RANKED_QUERIES;
+        }
+    };
+
+    public ProductSearchIndex(ProductRepository productRepository) {
+        this.productRepository = productRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        try (RebuildLog.Reload<ProductChangeEvent> reload = changeLog.begin()) {
+            List<Product> products = productRepository.findByIsActiveTrue();
+            lock.writeLock().lock();
+            try {
+                documents.clear();
+                postings.clear();
+                deletions.clear();
+                grams.clear();
+                totalLength = 0;
+                version++;
+                for (Product product : products) {
+                    add(product);
+                }
+                reload.replay(this::apply);
+                ready = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChange(ProductChangeEvent event) {
+        lock.writeLock().lock();
+        try {
+            changeLog.record(event);
+            apply(event);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Indexed products carry their category, so a category write reloads the whole index
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCategoryChange(CategoryChangeEvent event) {
+        rebuild();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogReload(CatalogReloadEvent event) {
+        rebuild();
+    }
+
+    private void apply(ProductChangeEvent event) {
+        version++;
+        remove(event.getProductId());
+        Product product = event.getProduct();
+        if (product != null && Boolean.TRUE.equals(product.getIsActive())) {
+            add(product);
+        }
+    }
+
+    // categoryId may be null to search the whole catalog
+    public List<Product> search(String query, Long categoryId) {
+        return toProducts(rank(query, categoryId));
+    }
+
+    // One ranked page after the (score, id) of the previous page's last hit.
+    // The cursor key holds the score's raw bits so it round-trips exactly.
+    public CursorPage<Product> searchPage(String query, Long categoryId, PageCursor cursor, int size) {
+        List<Map.Entry<Long, Double>> ranked = rank(query, categoryId);
+
+        // The ranking is sorted by score descending, then id: binary search for the first hit past the cursor
+        int start = 0;
+        if (cursor != null) {
+            double afterScore = Double.longBitsToDouble(Long.parseLong(cursor.getKey(), 16));
+            int low = 0;
+            int high = ranked.size();
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                Map.Entry<Long, Double> entry = ranked.get(middle);
+                if (entry.getValue() < afterScore
+                        || (entry.getValue() == afterScore && entry.getKey() > cursor.getId())) {
+                    high = middle;
+                } else {
+                    low = middle + 1;
+                }
+            }
+            start = low;
+        }
+
+        int end = Math.min(start + size, ranked.size());
+        List<Product> items = toProducts(ranked.subList(start, end));
+
+        String nextCursor = null;
+        if (end < ranked.size()) {
+            Map.Entry<Long, Double> last = ranked.get(end - 1);
+            nextCursor = new PageCursor(Long.toHexString(Double.doubleToLongBits(last.getValue())), last.getKey()).encode();
+        }
+        return new CursorPage<>(items, nextCursor);
+    }
+
+    // Read-only once built; shared between requests through rankings
+    private List<Map.Entry<Long, Double>> rank(String query, Long categoryId) {
+        Set<String> tokens = new TreeSet<>(tokenize(query));
+        if (tokens.isEmpty()) {
+            return List.of();
+        }
+        String key = String.join(" ", tokens) + "|" + categoryId;
+
+        lock.readLock().lock();
+        try {
+            synchronized (rankings) {
+                Ranking cached = rankings.get(key);
+                if (cached != null && cached.version == version) {
+                    return cached.ranked;
+                }
+            }
+
+            Map<Long, Double> scores = null;
+            for (String token : tokens) {
+                Map<Long, Double> tokenScores = scoreToken(token, categoryId);
+                if (scores == null) {
+                    scores = tokenScores;
+                } else {
+                    scores.keySet().retainAll(tokenScores.keySet());
+                    scores.replaceAll((id, score) -> score + tokenScores.get(id));
+                }
+                if (scores.isEmpty()) {
+                    break;
+                }
+            }
+
+            List<Map.Entry<Long, Double>> ranked = new ArrayList<>(scores.size());
+            scores.forEach((id, score) -> ranked.add(Map.entry(id, score)));
+            ranked.sort(Map.Entry.<Long, Double>comparingByValue(Comparator.reverseOrder())
+                    .thenComparing(Map.Entry.comparingByKey()));
+            List<Map.Entry<Long, Double>> result = Collections.unmodifiableList(ranked);
+            synchronized (rankings) {
+                rankings.put(key, new Ranking(version, result));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Products removed since ranking are skipped
+    private List<Product> toProducts(List<Map.Entry<Long, Double>> ranked) {
+        List<Product> products = new ArrayList<>(ranked.size());
+        lock.readLock().lock();
+        try {
+            for (Map.Entry<Long, Double> entry : ranked) {
+                IndexedProduct document = documents.get(entry.getKey());
+                if (document != null) {
+                    products.add(document.product);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return products;
+    }
+
+    private Map<Long, Double> scoreToken(String token, Long categoryId) {
+        Map<Long, Double> scores = new HashMap<>();
+        addTermScores(token, 1.0, categoryId, scores);
+
+        if (token.length() >= MIN_PREFIX_LENGTH) {
+            for (String term : postings.subMap(token, false, token + Character.MAX_VALUE, false).keySet()) {
+                addTermScores(term, PREFIX_WEIGHT, categoryId, scores);
+            }
+        }
+
+        if (token.length() >= GRAM_LENGTH) {
+            for (String term : infixCandidates(token)) {
+                addTermScores(term, INFIX_WEIGHT, categoryId, scores);
+            }
+        }
+
+        if (token.length() >= MIN_FUZZY_LENGTH) {
+            for (String term : fuzzyCandidates(token)) {
+                if (!term.startsWith(token)) {
+                    addTermScores(term, FUZZY_WEIGHT, categoryId, scores);
+                }
+            }
+        }
+        return scores;
+    }
+
+    private void addTermScores(String term, double weight, Long categoryId, Map<Long, Double> scores) {
+        Map<Long, Float> termPostings = postings.get(term);
+        if (termPostings == null) {
+            return;
+        }
+
+        int n = documents.size();
+        int df = termPostings.size();
+        double idf = Math.log(1 + (n - df + 0.5) / (df + 0.5));
+        double averageLength = n == 0 ? 1 : totalLength / n;
+
+        for (Map.Entry<Long, Float> posting : termPostings.entrySet()) {
+            IndexedProduct document = documents.get(posting.getKey());
+            if (categoryId != null && !categoryId.equals(document.categoryId)) {
+                continue;
+            }
+            double tf = posting.getValue();
+            double norm = K1 * (1 - B + B * document.length / averageLength);
+            double score = weight * idf * (tf * (K1 + 1)) / (tf + norm);
+            scores.merge(posting.getKey(), score, Math::max);
+        }
+    }
+
+    // Indexed terms holding the token somewhere after their first character: every trigram of the
+    // token narrows the candidates, then each survivor is checked for the whole token
+    private Set<String> infixCandidates(String token) {
+        Set<String> candidates = null;
+        for (String gram : gramsOf(token)) {
+            Set<String> terms = grams.get(gram);
+            if (terms == null) {
+                return Set.of();
+            }
+            if (candidates == null) {
+                candidates = new HashSet<>(terms);
+            } else {
+                candidates.retainAll(terms);
+            }
+        }
+        candidates.removeIf(term -> term.startsWith(token) || !term.contains(token));
+        return candidates;
+    }
+
+    private Set<String> fuzzyCandidates(String token) {
+        Set<String> candidates = new HashSet<>();
+        Set<String> exact = deletions.get(token);
+        if (exact != null) {
+            candidates.addAll(exact);
+        }
+        for (String variant : deletionsOf(token)) {
+            if (postings.containsKey(variant)) {
+                candidates.add(variant);
+            }
+            Set<String> terms = deletions.get(variant);
+            if (terms != null) {
+                candidates.addAll(terms);
+            }
+        }
+        candidates.removeIf(term -> !withinOneEdit(token, term));
+        return candidates;
+    }
+
+    private void add(Product product) {
+        Map<String, Float> terms = new HashMap<>();
+        for (String token : tokenize(product.getName())) {
+            terms.merge(token, NAME_WEIGHT, Float::sum);
+        }
+        for (String token : tokenize(product.getDescription())) {
+            terms.merge(token, DESCRIPTION_WEIGHT, Float::sum);
+        }
+
+        float length = 0;
+        for (Map.Entry<String, Float> entry : terms.entrySet()) {
+            String term = entry.getKey();
+            length += entry.getValue();
+            Map<Long, Float> termPostings = postings.get(term);
+            if (termPostings == null) {
+                termPostings = new HashMap<>();
+                postings.put(term, termPostings);
+                for (String variant : deletionsOf(term)) {
+                    deletions.computeIfAbsent(variant, k -> new HashSet<>()).add(term);
+                }
+                for (String gram : gramsOf(term)) {
+                    grams.computeIfAbsent(gram, k -> new HashSet<>()).add(term);
+                }
+            }
+            termPostings.put(product.getId(), entry.getValue());
+        }
+
+        Long categoryId = product.getCategory() != null ? product.getCategory().getId() : null;
+        documents.put(product.getId(), new IndexedProduct(product, categoryId, terms.keySet(), length));
+        totalLength += length;
+    }
+
+    private void remove(Long productId) {
+        IndexedProduct document = documents.remove(productId);
+        if (document == null) {
+            return;
+        }
+        totalLength -= document.length;
+        for (String term : document.terms) {
+            Map<Long, Float> termPostings = postings.get(term);
+            termPostings.remove(productId);
+            if (termPostings.isEmpty()) {
+                postings.remove(term);
+                for (String variant : deletionsOf(term)) {
+                    Set<String> terms = deletions.get(variant);
+                    terms.remove(term);
+                    if (terms.isEmpty()) {
+                        deletions.remove(variant);
+                    }
+                }
+                for (String gram : gramsOf(term)) {
+                    Set<String> terms = grams.get(gram);
+                    terms.remove(term);
+                    if (terms.isEmpty()) {
+                        grams.remove(gram);
+                    }
+                }
+            }
+        }
+    }
+
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        for (String token : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private static List<String> deletionsOf(String term) {
+        List<String> variants = new ArrayList<>();
+        if (term.length() < MIN_FUZZY_LENGTH - 1) {
+            return variants;
+        }
+        for (int i = 0; i < term.length(); i++) {
+            variants.add(term.substring(0, i) + term.substring(i + 1));
+        }
+        return variants;
+    }
+
+    private static Set<String> gramsOf(String term) {
+        Set<String> termGrams = new HashSet<>();
+        for (int i = 0; i + GRAM_LENGTH <= term.length(); i++) {
+            termGrams.add(term.substring(i, i + GRAM_LENGTH));
+        }
+        return termGrams;
+    }
+
+    // Levenshtein distance <= 1, also accepting a single adjacent transposition
+    private static boolean withinOneEdit(String a, String b) {
+        int lengthDifference = a.length() - b.length();
+        if (Math.abs(lengthDifference) > 1) {
+            return false;
+        }
+        int i = 0;
+        while (i < a.length() && i < b.length() && a.charAt(i) == b.charAt(i)) {
+            i++;
+        }
+        if (lengthDifference == 0) {
+            if (i == a.length()) {
+                return true;
+            }
+            if (a.substring(i + 1).equals(b.substring(i + 1))) {
+                return true;
+            }
+            return i + 1 < a.length()
+                    && a.charAt(i) == b.charAt(i + 1)
+                    && a.charAt(i + 1) == b.charAt(i)
+                    && a.substring(i + 2).equals(b.substring(i + 2));
+        }
+        if (lengthDifference > 0) {
+            return a.substring(i + 1).equals(b.substring(i));
+        }
+        return a.substring(i).equals(b.substring(i + 1));
+    }
+
+    private static class Ranking {
+        private final long version;
+        private final List<Map.Entry<Long, Double>> ranked;
+
+        private Ranking(long version, List<Map.Entry<Long, Double>> ranked) {
+            this.version = version;
+            this.ranked = ranked;
+        }
+    }
+
+    private static class IndexedProduct {
+        private final Product product;
+        private final Long categoryId;
+        private final Set<String> terms;
+        private final float length;
+
+        private IndexedProduct(Product product, Long categoryId, Set<String> terms, float length) {
+            this.product = product;
+            this.categoryId = categoryId;
+            this.terms = terms;
+            this.length = length;
+        }
+    }
+}
@@ -1,45 +1,128 @@
 package backend.user_profile_backend.service;
 
+import backend.user_profile_backend.dto.CursorPage;
+import backend.user_profile_backend.dto.ProductBatchUpdateResult;
+import backend.user_profile_backend.dto.ProductCard;
+import backend.user_profile_backend.dto.ProductFilterResult;
+import backend.user_profile_backend.dto.ProductSuggestions;
+import backend.user_profile_backend.dto.ProductUpdateRequest;
+import backend.user_profile_backend.dto.ProductView;
 import backend.user_profile_backend.model.Category;
 import backend.user_profile_backend.model.Product;
 import backend.user_profile_backend.repository.CategoryRepository;
 import backend.user_profile_backend.repository.ProductRepository;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.beans.BeanWrapperImpl;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
 
 @Service
 @Transactional
 public class ProductService {
     
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int MAX_PAGE_SIZE = 100;
+    public static final int MAX_BATCH_UPDATE = 500;
+    
+    private static final List<String> UPDATABLE_FIELDS = List.of("name", "description", "price", "originalPrice",
+            "discountPercentage", "imageUrl", "rating", "reviewCount", "stockQuantity", "isActive");
+    
     @Autowired
     private ProductRepository productRepository;
     
     @Autowired
     private CategoryRepository categoryRepository;
     
+    @Autowired
+    private ProductCatalogCache productCatalogCache;
+    
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+    
+    @Autowired
+    private ProductLeaderboards productLeaderboards;
+    
+    @Autowired
+    private ProductFacetIndex productFacetIndex;
+    
+    @Autowired
+    private ProductPriceIndex productPriceIndex;
+    
+    @Autowired
+    private CatalogSnapshotCache catalogSnapshotCache;
+    
+    @Autowired
+    private LowStockMonitor lowStockMonitor;
+    
+    @Autowired
+    private ProductSuggestIndex productSuggestIndex;
+    
+    @Autowired
+    private CategoryRegistry categoryRegistry;
+    
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
+    @Autowired
+    private Validator validator;
+    
     public List<Product> getAllProducts() {
-        return productRepository.findByIsActiveTrue();
+        return productCatalogCache.getAllProducts(productRepository::findByIsActiveTrue);
     }
     
     public Optional<Product> getProductById(Long id) {
-        return productRepository.findById(id);
+        return productCatalogCache.getProduct(id, () -> productRepository.findById(id));
     }
     
     public List<Product> getProductsByCategory(Long categoryId) {
-        return productRepository.findByCategoryIdAndIsActiveTrue(categoryId);
+        return productCatalogCache.getProductsByCategory(categoryId,
+                () -> productRepository.findByCategoryIdAndIsActiveTrue(categoryId));
+    }
+    
+    // Serialized views of the reads above, for controllers that write the bytes directly.
+    // A miss runs the narrow projection query rather than loading entities.
+    public JsonSnapshot getAllProductsSnapshot(ProductView view) {
+        return catalogSnapshotCache.get(CatalogSnapshotCache.productsKey(view),
+                () -> view == ProductView.DETAIL ? productRepository.findActiveDetails() : productRepository.findActiveCards());
+    }
+    
+    public JsonSnapshot getProductSnapshot(Long id) {
+        return catalogSnapshotCache.get(CatalogSnapshotCache.productKey(id),
+                () -> productRepository.findDetailById(id).orElse(null));
+    }
+    
+    public JsonSnapshot getProductsByCategorySnapshot(Long categoryId, ProductView view) {
+        return catalogSnapshotCache.get(CatalogSnapshotCache.categoryProductsKey(categoryId, view),
+                () -> view == ProductView.DETAIL
+                        ? productRepository.findActiveDetailsByCategory(categoryId)
+                        : productRepository.findActiveCardsByCategory(categoryId));
     }
     
     public List<Product> searchProducts(String searchTerm) {
         if (searchTerm == null || searchTerm.trim().isEmpty()) {
             return getAllProducts();
         }
+        if (productSearchIndex.isReady()) {
+            return productSearchIndex.search(searchTerm, null);
+        }
         return productRepository.searchProducts(searchTerm.trim());
     }
     
@@ -47,28 +130,46 @@ public class ProductService {
         if (searchTerm == null || searchTerm.trim().isEmpty()) {
             return getProductsByCategory(categoryId);
         }
+        if (productSearchIndex.isReady()) {
+            return productSearchIndex.search(searchTerm, categoryId);
+        }
         return productRepository.searchProductsByCategory(categoryId, searchTerm.trim());
     }
     
     public List<Product> getProductsByPriceRange(BigDecimal minPrice, BigDecimal maxPrice) {
+        if (productPriceIndex.isReady()) {
+            return productPriceIndex.findByPriceRange(minPrice, maxPrice, null);
+        }
         return productRepository.findByPriceBetweenAndIsActiveTrue(minPrice, maxPrice);
     }
     
     public List<Product> getProductsByCategoryAndPriceRange(Long categoryId, BigDecimal minPrice, BigDecimal maxPrice) {
+        if (productPriceIndex.isReady()) {
+            return productPriceIndex.findByPriceRange(minPrice, maxPrice, categoryId);
+        }
         return productRepository.findByCategoryIdAndPriceBetweenAndIsActiveTrue(categoryId, minPrice, maxPrice);
     }
     
     public List<Product> getTopRatedProducts(int limit) {
+        if (productLeaderboards.isReady()) {
+            return productLeaderboards.getTopRated(limit);
+        }
         Pageable pageable = PageRequest.of(0, limit);
         return productRepository.findTopRatedProducts(pageable);
     }
     
     public List<Product> getLatestProducts(int limit) {
+        if (productLeaderboards.isReady()) {
+            return productLeaderboards.getLatest(limit);
+        }
         Pageable pageable = PageRequest.of(0, limit);
         return productRepository.findLatestProducts(pageable);
     }
     
     public List<Product> getDiscountedProducts(int limit) {
+        if (productLeaderboards.isReady()) {
+            return productLeaderboards.getDiscounted(limit);
+        }
         Pageable pageable = PageRequest.of(0, limit);
         return productRepository.findDiscountedProducts(pageable);
     }
@@ -77,8 +178,148 @@ public class ProductService {
         return productRepository.findInStockProducts();
     }
     
-    public List<Product> getLowStockProducts(int threshold) {
-        return productRepository.findLowStockProducts(threshold);
+    // threshold == null means each product's category threshold (see LowStockMonitor)
+    public List<Product> getLowStockProducts(Integer threshold) {
+        if (lowStockMonitor.isReady()) {
+            return lowStockMonitor.findLowStock(threshold != null ? threshold.longValue() : null, null, Integer.MAX_VALUE)
+                    .getItems();
+        }
+        return productRepository.findLowStockProducts(threshold != null ? threshold : (int) lowStockMonitor.getDefaultThreshold());
+    }
+    
+    public Map<String, Long> getLowStockThresholds() {
+        return lowStockMonitor.getThresholds();
+    }
+    
+    public SseEmitter subscribeToLowStockAlerts() {
+        return lowStockMonitor.subscribe();
+    }
+    
+    // Keyset-paged variants of the list reads above. Rows are ordered by (sort key, id) and
+    // each page seeks past the last row of the previous one instead of using OFFSET.
+    public CursorPage<Product> getProductsPage(String cursor, Integer size) {
+        PageCursor after = decodeCursor(cursor);
+        int pageSize = pageSize(size);
+        List<Product> rows = productRepository.findActiveAfter(
+                after != null ? after.getId() : 0L, PageRequest.of(0, pageSize + 1));
+        return toPage(rows, pageSize, product -> "");
+    }
+    
+    public CursorPage<Product> getProductsByCategoryPage(Long categoryId, String cursor, Integer size) {
+        PageCursor after = decodeCursor(cursor);
+        int pageSize = pageSize(size);
+        List<Product> rows = productRepository.findActiveByCategoryAfter(
+                categoryId, after != null ? after.getId() : 0L, PageRequest.of(0, pageSize + 1));
+        return toPage(rows, pageSize, product -> "");
+    }
+    
+    public CursorPage<Product> searchProductsPage(Long categoryId, String searchTerm, String cursor, Integer size) {
+        if (searchTerm == null || searchTerm.trim().isEmpty()) {
+            return categoryId == null
+                    ? getProductsPage(cursor, size)
+                    : getProductsByCategoryPage(categoryId, cursor, size);
+        }
+        PageCursor after = decodeCursor(cursor);
+        int pageSize = pageSize(size);
+        if (productSearchIndex.isReady()) {
+            return productSearchIndex.searchPage(searchTerm, categoryId, after, pageSize);
+        }
+        // Index still building: page the LIKE results by id
+        long afterId = after != null ? after.getId() : 0L;
+        List<Product> rows = (categoryId == null
+                ? productRepository.searchProducts(searchTerm.trim())
+                : productRepository.searchProductsByCategory(categoryId, searchTerm.trim()))
+                .stream()
+                .filter(product -> product.getId() > afterId)
+                .sorted((a, b) -> Long.compare(a.getId(), b.getId()))
+                .limit(pageSize + 1L)
+                .toList();
+        return toPage(rows, pageSize, product -> "");
+    }
+    
+    public CursorPage<Product> getProductsByPriceRangePage(BigDecimal minPrice, BigDecimal maxPrice, String cursor, Integer size) {
+        PageCursor after = decodeCursor(cursor);
+        int pageSize = pageSize(size);
+        if (productPriceIndex.isReady()) {
+            return productPriceIndex.findByPriceRangePage(minPrice, maxPrice, null, after, pageSize);
+        }
+        BigDecimal afterPrice = after != null ? new BigDecimal(after.getKey()) : minPrice;
+        List<Product> rows = productRepository.findByPriceRangeAfter(minPrice, maxPrice, afterPrice,
+                after != null ? after.getId() : 0L, PageRequest.of(0, pageSize + 1));
+        return toPage(rows, pageSize, product -> product.getPrice().toPlainString());
+    }
+    
+    public CursorPage<Product> getInStockProductsPage(String cursor, Integer size) {
+        PageCursor after = decodeCursor(cursor);
+        int pageSize = pageSize(size);
+        List<Product> rows = productRepository.findInStockAfter(
+                after != null ? after.getId() : 0L, PageRequest.of(0, pageSize + 1));
+        return toPage(rows, pageSize, product -> "");
+    }
+    
+    public CursorPage<Product> getLowStockProductsPage(Integer threshold, String cursor, Integer size) {
+        PageCursor after = decodeCursor(cursor);
+        int pageSize = pageSize(size);
+        if (lowStockMonitor.isReady()) {
+            return lowStockMonitor.findLowStock(threshold != null ? threshold.longValue() : null, after, pageSize);
+        }
+        // Monitor still loading: one threshold for everything, straight from the database
+        long limit = threshold != null ? threshold : lowStockMonitor.getDefaultThreshold();
+        Long afterStock = after != null ? Long.valueOf(after.getKey()) : Long.MIN_VALUE;
+        List<Product> rows = productRepository.findLowStockAfter(limit, afterStock,
+                after != null ? after.getId() : 0L, PageRequest.of(0, pageSize + 1));
+        return toPage(rows, pageSize, product -> String.valueOf(product.getStockQuantity()));
+    }
+    
+    public ProductSuggestions suggestProducts(String prefix, int limit) {
+        if (productSuggestIndex.isReady()) {
+            return productSuggestIndex.suggest(prefix, limit);
+        }
+        // Index still loading: product matches from the database, no term or category groups
+        String trimmed = prefix != null ? prefix.trim() : "";
+        if (trimmed.isEmpty()) {
+            return new ProductSuggestions(List.of(), List.of(), List.of());
+        }
+        int count = Math.max(1, Math.min(limit, ProductSuggestIndex.MAX_SUGGESTIONS));
+        List<ProductCard> products = productRepository.findSuggestions(trimmed, PageRequest.of(0, count))
+                .stream()
+                .map(ProductCard::from)
+                .toList();
+        return new ProductSuggestions(List.of(), List.of(), products);
+    }
+    
+    public Map<String, Long> getSuggestStats() {
+        return productSuggestIndex.getStats();
+    }
+    
+    public ProductFilterResult filterProducts(Long categoryId, BigDecimal minPrice, BigDecimal maxPrice,
+                                              Boolean inStock, Boolean discounted, String cursor, Integer size,
+                                              ProductView view) {
+        PageCursor after = decodeCursor(cursor);
+        int pageSize = pageSize(size);
+        if (productFacetIndex.isReady()) {
+            return productFacetIndex.filter(categoryId, minPrice, maxPrice, inStock, discounted, after, pageSize, view);
+        }
+        // Index still loading: the matches come from the database, the sidebar counts stay empty
+        boolean anyStock = !Boolean.TRUE.equals(inStock);
+        boolean anyDiscount = !Boolean.TRUE.equals(discounted);
+        List<Product> rows = productRepository.findFacetMatchesAfter(
+                categoryId == null, categoryId != null ? categoryId : 0L,
+                minPrice == null, minPrice != null ? minPrice : BigDecimal.ZERO,
+                maxPrice == null, maxPrice != null ? maxPrice : BigDecimal.ZERO,
+                anyStock, anyDiscount, after != null ? after.getId() : 0L, PageRequest.of(0, pageSize + 1));
+        CursorPage<Product> page = toPage(rows, pageSize, product -> "");
+        ProductFilterResult result = new ProductFilterResult();
+        result.setItems(page.getItems().stream().map(view::render).toList());
+        result.setNextCursor(page.getNextCursor());
+        result.setTotal((int) productRepository.countFacetMatches(
+                categoryId == null, categoryId != null ? categoryId : 0L,
+                minPrice == null, minPrice != null ? minPrice : BigDecimal.ZERO,
+                maxPrice == null, maxPrice != null ? maxPrice : BigDecimal.ZERO,
+                anyStock, anyDiscount));
+        result.setCategoryCounts(Map.of());
+        result.setPriceRangeCounts(Map.of());
+        return result;
     }
     
     public Product createProduct(Product product) {
@@ -91,7 +332,9 @@ public class ProductService {
             product.setCategory(category.get());
         }
         
-        return productRepository.save(product);
+        Product savedProduct = productRepository.save(product);
+        eventPublisher.publishEvent(new ProductChangeEvent(savedProduct.getId(), savedProduct, null));
+        return savedProduct;
     }
     
     public Product updateProduct(Long id, Product productDetails) {
@@ -101,14 +344,8 @@ public class ProductService {
         }
         
         Product product = optionalProduct.get();
+        Long previousCategoryId = categoryIdOf(product);
         
-        // Update fields
-        if (productDetails.getName() != null) {
-            product.setName(productDetails.getName());
-        }
-        if (productDetails.getDescription() != null) {
-            product.setDescription(productDetails.getDescription());
-        }
         if (productDetails.getCategory() != null && productDetails.getCategory().getId() != null) {
             Optional<Category> category = categoryRepository.findById(productDetails.getCategory().getId());
             if (category.isEmpty()) {
@@ -116,6 +353,94 @@ public class ProductService {
             }
             product.setCategory(category.get());
         }
+        applyUpdate(product, productDetails);
+        
+        Product savedProduct = productRepository.save(product);
+        eventPublisher.publishEvent(new ProductChangeEvent(id, savedProduct, previousCategoryId));
+        return savedProduct;
+    }
+    
+    // Same null-means-unchanged rules as updateProduct, for many products in one transaction.
+    // Targets and categories are each loaded with a single query, and the dirty products are
+    // flushed together at commit (hibernate.jdbc.batch_size). An item that fails leaves its
+    // product untouched and does not affect the others.
+    public List<ProductBatchUpdateResult> updateProducts(List<ProductUpdateRequest> requests) {
+        if (requests.size() > MAX_BATCH_UPDATE) {
+            throw new IllegalArgumentException("At most " + MAX_BATCH_UPDATE + " products can be updated at once");
+        }
+        List<Product> updates = requests.stream().map(ProductUpdateRequest::toProductDetails).toList();
+        Set<Long> productIds = new HashSet<>();
+        Set<Long> categoryIds = new HashSet<>();
+        for (Product update : updates) {
+            if (update.getId() != null) {
+                productIds.add(update.getId());
+            }
+            if (update.getCategory() != null && update.getCategory().getId() != null) {
+                categoryIds.add(update.getCategory().getId());
+            }
+        }
+        Map<Long, Product> products = new HashMap<>();
+        for (Product product : productRepository.findAllById(productIds)) {
+            products.put(product.getId(), product);
+        }
+        Map<Long, Category> categories = new HashMap<>();
+        for (Category category : categoryRepository.findAllById(categoryIds)) {
+            categories.put(category.getId(), category);
+        }
+        
+        List<ProductBatchUpdateResult> results = new ArrayList<>(updates.size());
+        Map<Long, Long> previousCategoryIds = new LinkedHashMap<>();
+        for (Product update : updates) {
+            Product product = update.getId() != null ? products.get(update.getId()) : null;
+            if (product == null) {
+                results.add(ProductBatchUpdateResult.failed(update.getId(), update.getId() == null
+                        ? "Product id is required"
+                        : "Product not found with id: " + update.getId()));
+                continue;
+            }
+            Category category = null;
+            if (update.getCategory() != null && update.getCategory().getId() != null) {
+                category = categories.get(update.getCategory().getId());
+                if (category == null) {
+                    results.add(ProductBatchUpdateResult.failed(update.getId(),
+                            "Category not found with id: " + update.getCategory().getId()));
+                    continue;
+                }
+            }
+            // Checked before touching the managed entity, which would otherwise be flushed as-is
+            String violations = validateUpdate(update);
+            if (violations != null) {
+                results.add(ProductBatchUpdateResult.failed(update.getId(), violations));
+                continue;
+            }
+            
+            previousCategoryIds.putIfAbsent(product.getId(), categoryIdOf(product));
+            if (category != null) {
+                product.setCategory(category);
+            }
+            applyUpdate(product, update);
+            results.add(ProductBatchUpdateResult.updated(product));
+        }
+        
+        List<Product> changed = new ArrayList<>(previousCategoryIds.size());
+        for (Long id : previousCategoryIds.keySet()) {
+            changed.add(products.get(id));
+        }
+        productRepository.saveAll(changed);
+        for (Product product : changed) {
+            eventPublisher.publishEvent(new ProductChangeEvent(product.getId(), product,
+                    previousCategoryIds.get(product.getId())));
+        }
+        return results;
+    }
+    
+    private void applyUpdate(Product product, Product productDetails) {
+        if (productDetails.getName() != null) {
+            product.setName(productDetails.getName());
+        }
+        if (productDetails.getDescription() != null) {
+            product.setDescription(productDetails.getDescription());
+        }
         if (productDetails.getPrice() != null) {
             product.setPrice(productDetails.getPrice());
         }
@@ -140,8 +465,21 @@ public class ProductService {
         if (productDetails.getIsActive() != null) {
             product.setIsActive(productDetails.getIsActive());
         }
-        
-        return productRepository.save(product);
+    }
+    
+    // Bean validation of just the fields an update sets; null when they are all valid
+    private String validateUpdate(Product update) {
+        BeanWrapperImpl fields = new BeanWrapperImpl(update);
+        Set<String> messages = new TreeSet<>();
+        for (String field : UPDATABLE_FIELDS) {
+            Object value = fields.getPropertyValue(field);
+            if (value != null) {
+                for (ConstraintViolation<Product> violation : validator.validateValue(Product.class, field, value)) {
+                    messages.add(violation.getMessage());
+                }
+            }
+        }
+        return messages.isEmpty() ? null : String.join("; ", messages);
     }
     
     public void deleteProduct(Long id) {
@@ -152,18 +490,61 @@ public class ProductService {
         
         Product product = optionalProduct.get();
         product.setIsActive(false);
-        productRepository.save(product);
+        Product savedProduct = productRepository.save(product);
+        eventPublisher.publishEvent(new ProductChangeEvent(id, savedProduct, categoryIdOf(product)));
     }
     
     public void permanentlyDeleteProduct(Long id) {
-        if (!productRepository.existsById(id)) {
+        Optional<Product> optionalProduct = productRepository.findById(id);
+        if (optionalProduct.isEmpty()) {
             throw new IllegalArgumentException("Product not found with id: " + id);
         }
+        Long previousCategoryId = categoryIdOf(optionalProduct.get());
         productRepository.deleteById(id);
+        eventPublisher.publishEvent(new ProductChangeEvent(id, null, previousCategoryId));
     }
     
     public long getProductCountByCategory(Long categoryId) {
+        if (categoryRegistry.isReady()) {
+            return categoryRegistry.getProductCount(categoryId);
+        }
         return productRepository.countByCategoryId(categoryId);
     }
+    
+    public Map<String, Long> getCatalogCacheStats() {
+        return productCatalogCache.getStats();
+    }
+    
+    public Map<String, Long> getSnapshotStats() {
+        return catalogSnapshotCache.getStats();
+    }
+    
+    private int pageSize(Integer size) {
+        if (size == null) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        if (size < 1) {
+            throw new IllegalArgumentException("Page size must be at least 1");
+        }
+        return Math.min(size, MAX_PAGE_SIZE);
+    }
+    
+    private PageCursor decodeCursor(String cursor) {
+        return cursor == null || cursor.isEmpty() ? null : PageCursor.decode(cursor);
+    }
+    
+    // rows holds up to pageSize + 1 entries; the extra one only signals that another page exists
+    private CursorPage<Product> toPage(List<Product> rows, int pageSize, Function<Product, String> sortKey) {
+        if (rows.size() <= pageSize) {
+            return new CursorPage<>(rows, null);
+        }
+        List<Product> items = rows.subList(0, pageSize);
+        Product last = items.get(pageSize - 1);
+        return new CursorPage<>(items, new PageCursor(sortKey.apply(last), last.getId()).encode());
+    }
+    
+    private Long categoryIdOf(Product product) {
+        return product.getCategory() != null ? product.getCategory().getId() : null;
+    }
 }
 
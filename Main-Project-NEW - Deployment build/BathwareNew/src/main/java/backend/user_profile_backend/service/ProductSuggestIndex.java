@@ -0,0 +1,494 @@
+package backend.user_profile_backend.service;
+
+import backend.user_profile_backend.dto.CategoryRef;
+import backend.user_profile_backend.dto.ProductCard;
+import backend.user_profile_backend.dto.ProductSuggestions;
+import backend.user_profile_backend.model.Product;
+import backend.user_profile_backend.repository.ProductRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Typeahead over product names, category names and the words used across the catalog.
+// Keys live in a radix trie (single-child chains collapsed into one edge). Product names are
+// also keyed from each later word, so "basin" finds "Ceramic Wash Basin". Every node caches
+// the best MAX_SUGGESTIONS of each kind below it. A write only clears the caches on its own
+// path and the next read recomputes them from the children's caches, so a lookup is a walk
+// down the prefix plus, at most, a re-merge of the nodes a write touched.
+@Component
+public class ProductSuggestIndex {
+
+    public static final int MAX_SUGGESTIONS = 10;
+    private static final int MIN_TERM_LENGTH = 3;
+
+    private enum Kind { TERM, CATEGORY, PRODUCT }
+
+    private static final Comparator<Suggestion> RANKING = Comparator
+            .comparingDouble((Suggestion suggestion) -> suggestion.score).reversed()
+            .thenComparing(Comparator.comparingLong((Suggestion suggestion) -> suggestion.popularity).reversed())
+            .thenComparing(suggestion -> suggestion.text);
+
+    private final ProductRepository productRepository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Node root = new Node("");
+    private final Map<Long, IndexedProduct> products = new HashMap<>();
+    private final Map<Long, Counted> categories = new HashMap<>();
+    private final Map<String, Counted> terms = new HashMap<>();
+    private final RebuildLog<ProductChangeEvent> changeLog = new RebuildLog<>();
+    private volatile boolean ready;
+
+    public ProductSuggestIndex(ProductRepository productRepository) {
+        this.productRepository = productRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        try (RebuildLog.Reload<ProductChangeEvent> reload = changeLog.begin()) {
+            List<Product> activeProducts = productRepository.findByIsActiveTrue();
+            lock.writeLock().lock();
+            try {
+                root = new Node("");
+                products.clear();
+                categories.clear();
+                terms.clear();
+                for (Product product : activeProducts) {
+                    add(product);
+                }
+                reload.replay(this::apply);
+                // Fill every node's cache now rather than on the first keystrokes
+                root.top();
+                ready = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChange(ProductChangeEvent event) {
+        lock.writeLock().lock();
+        try {
+            changeLog.record(event);
+            apply(event);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void apply(ProductChangeEvent event) {
+        remove(event.getProductId());
+        Product product = event.getProduct();
+        if (product != null && Boolean.TRUE.equals(product.getIsActive())) {
+            add(product);
+        }
+    }
+
+    // Category names are suggestions too, so a rename reloads the trie
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCategoryChange(CategoryChangeEvent event) {
+        rebuild();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogReload(CatalogReloadEvent event) {
+        rebuild();
+    }
+
+    public ProductSuggestions suggest(String prefix, int limit) {
+        String key = normalize(prefix);
+        int count = Math.max(1, Math.min(limit, MAX_SUGGESTIONS));
+        lock.readLock().lock();
+        try {
+            Node node = key.isEmpty() ? null : find(key);
+            if (node == null) {
+                return new ProductSuggestions(List.of(), List.of(), List.of());
+            }
+            Map<Kind, List<Suggestion>> top = node.top();
+            List<String> termTexts = new ArrayList<>();
+            for (Suggestion suggestion : first(top.get(Kind.TERM), count)) {
+                termTexts.add(suggestion.text);
+            }
+            List<CategoryRef> categoryRefs = new ArrayList<>();
+            for (Suggestion suggestion : first(top.get(Kind.CATEGORY), count)) {
+                categoryRefs.add(new CategoryRef(suggestion.id, suggestion.text));
+            }
+            List<ProductCard> cards = new ArrayList<>();
+            for (Suggestion suggestion : first(top.get(Kind.PRODUCT), count)) {
+                cards.add(ProductCard.from(products.get(suggestion.id).product));
+            }
+            return new ProductSuggestions(termTexts, categoryRefs, cards);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Sizes are estimates for a 64-bit JVM with compressed oops
+    public Map<String, Long> getStats() {
+        lock.readLock().lock();
+        try {
+            long[] totals = new long[3]; // nodes, keyed entries, estimated bytes
+            measure(root, totals);
+            Map<String, Long> stats = new LinkedHashMap<>();
+            stats.put("products", (long) products.size());
+            stats.put("categories", (long) categories.size());
+            stats.put("terms", (long) terms.size());
+            stats.put("nodes", totals[0]);
+            stats.put("entries", totals[1]);
+            stats.put("estimatedBytes", totals[2]);
+            return stats;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void add(Product product) {
+        List<String> nameTokens = ProductSearchIndex.tokenize(product.getName());
+        Suggestion suggestion = new Suggestion(Kind.PRODUCT, product.getId(), product.getName(),
+                ratingOf(product), product.getReviewCount() != null ? product.getReviewCount() : 0L);
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < nameTokens.size(); i++) {
+            String key = String.join(" ", nameTokens.subList(i, nameTokens.size()));
+            if (!keys.contains(key)) {
+                keys.add(key);
+                insert(key, suggestion);
+            }
+        }
+
+        Set<String> words = new LinkedHashSet<>(nameTokens);
+        words.addAll(ProductSearchIndex.tokenize(product.getDescription()));
+        words.removeIf(word -> word.length() < MIN_TERM_LENGTH);
+        for (String word : words) {
+            adjustTerm(word, 1);
+        }
+
+        Long categoryId = null;
+        if (product.getCategory() != null && product.getCategory().getId() != null) {
+            categoryId = product.getCategory().getId();
+            adjustCategory(categoryId, product.getCategory().getName(), 1);
+        }
+        products.put(product.getId(), new IndexedProduct(product, suggestion, keys, words, categoryId));
+    }
+
+    private void remove(Long productId) {
+        IndexedProduct indexed = products.remove(productId);
+        if (indexed == null) {
+            return;
+        }
+        for (String key : indexed.keys) {
+            delete(key, indexed.suggestion);
+        }
+        for (String word : indexed.words) {
+            adjustTerm(word, -1);
+        }
+        if (indexed.categoryId != null) {
+            adjustCategory(indexed.categoryId, null, -1);
+        }
+    }
+
+    // Term and category ranks are their counts, so a count change re-keys the suggestion
+    private void adjustTerm(String word, int delta) {
+        Counted counted = terms.get(word);
+        int count = (counted != null ? counted.count : 0) + delta;
+        if (counted != null) {
+            delete(word, counted.suggestion);
+        }
+        if (count <= 0) {
+            terms.remove(word);
+            return;
+        }
+        Suggestion suggestion = new Suggestion(Kind.TERM, null, word, count, 0L);
+        terms.put(word, new Counted(word, count, suggestion));
+        insert(word, suggestion);
+    }
+
+    private void adjustCategory(Long categoryId, String name, int delta) {
+        Counted counted = categories.get(categoryId);
+        int count = (counted != null ? counted.count : 0) + delta;
+        String categoryName = counted != null ? counted.key : name;
+        if (counted != null) {
+            delete(keyOf(categoryName), counted.suggestion);
+        }
+        if (count <= 0 || categoryName == null) {
+            categories.remove(categoryId);
+            return;
+        }
+        Suggestion suggestion = new Suggestion(Kind.CATEGORY, categoryId, categoryName, count, 0L);
+        categories.put(categoryId, new Counted(categoryName, count, suggestion));
+        insert(keyOf(categoryName), suggestion);
+    }
+
+    private void insert(String key, Suggestion suggestion) {
+        if (key.isEmpty()) {
+            return;
+        }
+        Node node = root;
+        node.invalidate();
+        int i = 0;
+        while (i < key.length()) {
+            Node child = node.child(key.charAt(i));
+            if (child == null) {
+                child = new Node(key.substring(i));
+                node.addChild(child);
+                node = child;
+                break;
+            }
+            int common = commonPrefix(child.label, key, i);
+            if (common < child.label.length()) {
+                // Split the edge where the new key leaves it
+                Node middle = new Node(child.label.substring(0, common));
+                child.label = child.label.substring(common);
+                node.replaceChild(middle);
+                middle.addChild(child);
+                child = middle;
+            }
+            node = child;
+            node.invalidate();
+            i += common;
+        }
+        node.invalidate();
+        node.entries.add(suggestion);
+    }
+
+    private void delete(String key, Suggestion suggestion) {
+        List<Node> path = new ArrayList<>();
+        Node node = root;
+        path.add(node);
+        int i = 0;
+        while (i < key.length()) {
+            Node child = node.child(key.charAt(i));
+            if (child == null || !key.startsWith(child.label, i)) {
+                return;
+            }
+            i += child.label.length();
+            node = child;
+            path.add(node);
+        }
+        if (!node.entries.remove(suggestion)) {
+            return;
+        }
+        for (Node onPath : path) {
+            onPath.invalidate();
+        }
+        // Drop nodes left empty and re-collapse chains the removal created
+        for (int depth = path.size() - 1; depth > 0; depth--) {
+            Node current = path.get(depth);
+            Node parent = path.get(depth - 1);
+            if (current.entries.isEmpty() && current.childCount == 0) {
+                parent.removeChild(current.label.charAt(0));
+            } else if (current.entries.isEmpty() && current.childCount == 1) {
+                Node only = current.children[0];
+                only.label = current.label + only.label;
+                parent.replaceChild(only);
+            }
+        }
+    }
+
+    private Node find(String prefix) {
+        Node node = root;
+        int i = 0;
+        while (i < prefix.length()) {
+            Node child = node.child(prefix.charAt(i));
+            if (child == null) {
+                return null;
+            }
+            int common = commonPrefix(child.label, prefix, i);
+            if (i + common == prefix.length()) {
+                return child; // prefix ends on or inside this edge
+            }
+            if (common < child.label.length()) {
+                return null;
+            }
+            node = child;
+            i += common;
+        }
+        return node;
+    }
+
+    private static void measure(Node node, long[] totals) {
+        totals[0]++;
+        totals[1] += node.entries.size();
+        // object header and fields, edge label, child arrays, entry list, cached rankings
+        totals[2] += 40 + (40 + node.label.length()) + (16 + 2L * node.keys.length) + (16 + 4L * node.children.length)
+                + (40 + 4L * node.entries.size());
+        Map<Kind, List<Suggestion>> cached = node.top;
+        if (cached != null) {
+            for (List<Suggestion> ranked : cached.values()) {
+                totals[2] += 16 + 4L * ranked.size();
+            }
+        }
+        for (int i = 0; i < node.childCount; i++) {
+            measure(node.children[i], totals);
+        }
+    }
+
+    private static int commonPrefix(String label, String key, int offset) {
+        int length = Math.min(label.length(), key.length() - offset);
+        int i = 0;
+        while (i < length && label.charAt(i) == key.charAt(offset + i)) {
+            i++;
+        }
+        return i;
+    }
+
+    private static String keyOf(String text) {
+        return String.join(" ", ProductSearchIndex.tokenize(text));
+    }
+
+    private static String normalize(String text) {
+        String joined = keyOf(text);
+        // Keep a trailing space: "wash " should only match the word "wash", not "washer"
+        return text != null && !joined.isEmpty() && Character.isWhitespace(text.charAt(text.length() - 1))
+                ? joined + " " : joined;
+    }
+
+    private static double ratingOf(Product product) {
+        BigDecimal rating = product.getRating();
+        return rating != null ? rating.doubleValue() : 0.0;
+    }
+
+    private static List<Suggestion> first(List<Suggestion> ranked, int count) {
+        return ranked.size() <= count ? ranked : ranked.subList(0, count);
+    }
+
+    private static class Node {
+        private String label;
+        // children sorted by the first char of their label, which is unique among siblings
+        private char[] keys = new char[0];
+        private Node[] children = new Node[0];
+        private int childCount;
+        private final List<Suggestion> entries = new ArrayList<>(1);
+        private volatile Map<Kind, List<Suggestion>> top;
+
+        private Node(String label) {
+            this.label = label;
+        }
+
+        private Node child(char first) {
+            int index = Arrays.binarySearch(keys, 0, childCount, first);
+            return index >= 0 ? children[index] : null;
+        }
+
+        private void addChild(Node child) {
+            int index = -Arrays.binarySearch(keys, 0, childCount, child.label.charAt(0)) - 1;
+            if (childCount == keys.length) {
+                keys = Arrays.copyOf(keys, Math.max(2, childCount * 2));
+                children = Arrays.copyOf(children, keys.length);
+            }
+            System.arraycopy(keys, index, keys, index + 1, childCount - index);
+            System.arraycopy(children, index, children, index + 1, childCount - index);
+            keys[index] = child.label.charAt(0);
+            children[index] = child;
+            childCount++;
+        }
+
+        private void replaceChild(Node child) {
+            children[Arrays.binarySearch(keys, 0, childCount, child.label.charAt(0))] = child;
+        }
+
+        private void removeChild(char first) {
+            int index = Arrays.binarySearch(keys, 0, childCount, first);
+            System.arraycopy(keys, index + 1, keys, index, childCount - index - 1);
+            System.arraycopy(children, index + 1, children, index, childCount - index - 1);
+            childCount--;
+            children[childCount] = null;
+        }
+
+        private void invalidate() {
+            top = null;
+        }
+
+        // Readers may race to fill an empty cache; they compute the same lists, so either wins
+        private Map<Kind, List<Suggestion>> top() {
+            Map<Kind, List<Suggestion>> cached = top;
+            if (cached != null) {
+                return cached;
+            }
+            Map<Kind, Set<Suggestion>> candidates = new EnumMap<>(Kind.class);
+            for (Kind kind : Kind.values()) {
+                candidates.put(kind, new LinkedHashSet<>());
+            }
+            for (Suggestion suggestion : entries) {
+                candidates.get(suggestion.kind).add(suggestion);
+            }
+            for (int i = 0; i < childCount; i++) {
+                for (Map.Entry<Kind, List<Suggestion>> ranked : children[i].top().entrySet()) {
+                    candidates.get(ranked.getKey()).addAll(ranked.getValue());
+                }
+            }
+            Map<Kind, List<Suggestion>> computed = new EnumMap<>(Kind.class);
+            for (Map.Entry<Kind, Set<Suggestion>> kind : candidates.entrySet()) {
+                List<Suggestion> ranked = new ArrayList<>(kind.getValue());
+                ranked.sort(RANKING);
+                computed.put(kind.getKey(), List.copyOf(first(ranked, MAX_SUGGESTIONS)));
+            }
+            top = computed;
+            return computed;
+        }
+    }
+
+    // Identity equality: one product keyed from several words is still one suggestion
+    private static class Suggestion {
+        private final Kind kind;
+        private final Long id;
+        private final String text;
+        private final double score;
+        private final long popularity;
+
+        private Suggestion(Kind kind, Long id, String text, double score, long popularity) {
+            this.kind = kind;
+            this.id = id;
+            this.text = text;
+            this.score = score;
+            this.popularity = popularity;
+        }
+    }
+
+    private static class IndexedProduct {
+        private final Product product;
+        private final Suggestion suggestion;
+        private final List<String> keys;
+        private final Set<String> words;
+        private final Long categoryId;
+
+        private IndexedProduct(Product product, Suggestion suggestion, List<String> keys, Set<String> words,
+                               Long categoryId) {
+            this.product = product;
+            this.suggestion = suggestion;
+            this.keys = keys;
+            this.words = words;
+            this.categoryId = categoryId;
+        }
+    }
+
+    private static class Counted {
+        private final String key;
+        private final int count;
+        private final Suggestion suggestion;
+
+        private Counted(String key, int count, Suggestion suggestion) {
+            this.key = key;
+            this.count = count;
+            this.suggestion = suggestion;
+        }
+    }
+}
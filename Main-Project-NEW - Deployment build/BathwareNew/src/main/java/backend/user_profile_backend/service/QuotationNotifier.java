@@ -0,0 +1,98 @@
+package backend.user_profile_backend.service;
+
+import backend.user_profile_backend.model.Quotation;
+import backend.user_profile_backend.repository.QuotationRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Emails customers about approved quotations. Each status change request is one batch: after
+// it commits, the quotations and customers are loaded with one query and the mails are sent on
+// a background thread, so approving dozens at once does not wait on SMTP.
+// Off unless quotation.notifications.enabled=true: outgoing SMTP times out on the Render free
+// tier, so the deployment demo approves without mailing. The SMTP settings are spring.mail.*.
+@Component
+public class QuotationNotifier {
+
+    private final QuotationRepository quotationRepository;
+    private final EmailService emailService;
+    private final boolean enabled;
+    private final ExecutorService executor;
+
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    public QuotationNotifier(QuotationRepository quotationRepository,
+                             EmailService emailService,
+                             @Value("${quotation.notifications.enabled:false}") boolean enabled) {
+        this.quotationRepository = quotationRepository;
+        this.emailService = emailService;
+        this.enabled = enabled;
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "quotation-notifier");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStatusChange(QuotationStatusEvent event) {
+        if (!enabled || event.getStatus() != Quotation.QuotationStatus.APPROVED || event.getQuotationIds().isEmpty()) {
+            return;
+        }
+        batches.incrementAndGet();
+        executor.execute(() -> sendApprovals(event.getQuotationIds()));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    public Map<String, Long> getStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled ? 1L : 0L);
+        stats.put("batches", batches.get());
+        stats.put("sent", sent.get());
+        stats.put("failed", failed.get());
+        return stats;
+    }
+
+    private void sendApprovals(List<Long> quotationIds) {
+        List<Quotation> quotations;
+        try {
+            quotations = quotationRepository.findWithCustomerByIdIn(quotationIds);
+        } catch (RuntimeException e) {
+            failed.addAndGet(quotationIds.size());
+            System.err.println("Email notification failed: " + e.getMessage());
+            return;
+        }
+        for (Quotation quotation : quotations) {
+            try {
+                String to = quotation.getCustomer().getEmail();
+                String subject = "Your Quotation is Approved";
+                String body = "Hello " + quotation.getQname() + ",\n\n" +
+                        "Your quotation with ID " + quotation.getQuotationId() + " has been APPROVED.\n" +
+                        "Total Price: Rs. " + quotation.getTotalPrice() + "\n\n" +
+                        "You can now proceed with making your payment\n\n" +
+                        "We will ensure product delivery as soon as possible\n\n" +
+                        "Thank you for choosing us!";
+                emailService.sendEmail(to, subject, body);
+                sent.incrementAndGet();
+            } catch (Exception e) {
+                // Email failed but approval still succeeds
+                failed.incrementAndGet();
+                System.err.println("Email notification failed: " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package backend.user_profile_backend.service;
+
+import backend.user_profile_backend.model.Quotation;
+
+import java.util.List;
+
+// Published once per status change request, single or bulk, for every quotation whose status
+// actually changed; listeners handle the whole list together.
+public class QuotationStatusEvent {
+
+    private final List<Long> quotationIds;
+    private final Quotation.QuotationStatus status;
+
+    public QuotationStatusEvent(List<Long> quotationIds, Quotation.QuotationStatus status) {
+        this.quotationIds = List.copyOf(quotationIds);
+        this.status = status;
+    }
+
+    public List<Long> getQuotationIds() {
+        return quotationIds;
+    }
+
+    public Quotation.QuotationStatus getStatus() {
+        return status;
+    }
+}
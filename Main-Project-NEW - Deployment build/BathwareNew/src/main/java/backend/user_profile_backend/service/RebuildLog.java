@@ -0,0 +1,79 @@
+package backend.user_profile_backend.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+// Changes an in-memory index saw while it was reloading from the database. A reload reads the
+// catalog before it takes the index's lock, so a change committed after that read would be
+// overwritten by the older rows. Listeners record each change under the index's write lock
+// before applying it; the reload, holding the same lock, replays everything recorded since it
+// began on top of the fresh data. Replayed changes must be safe to apply twice.
+public class RebuildLog<E> {
+
+    private final Object lock = new Object();
+    private final List<E> changes = new ArrayList<>();
+    // Changes already discarded from the front of the list
+    private long discarded;
+    private int reloads;
+
+    public Reload<E> begin() {
+        synchronized (lock) {
+            reloads++;
+            return new Reload<>(this, discarded + changes.size());
+        }
+    }
+
+    // Only kept while a reload is running
+    public void record(E change) {
+        synchronized (lock) {
+            if (reloads > 0) {
+                changes.add(change);
+            }
+        }
+    }
+
+    private List<E> end(long start) {
+        synchronized (lock) {
+            List<E> since = new ArrayList<>(changes.subList((int) (start - discarded), changes.size()));
+            reloads--;
+            if (reloads == 0) {
+                discarded += changes.size();
+                changes.clear();
+            }
+            return since;
+        }
+    }
+
+    // One reload, from before its database read until its data is in place. Closing it without
+    // a replay (the reload failed) just stops recording for it.
+    public static class Reload<E> implements AutoCloseable {
+        private final RebuildLog<E> log;
+        private final long start;
+        private boolean ended;
+
+        private Reload(RebuildLog<E> log, long start) {
+            this.log = log;
+            this.start = start;
+        }
+
+        // Call while holding the index's write lock, after the reloaded data is in place
+        public void replay(Consumer<E> apply) {
+            if (ended) {
+                return;
+            }
+            ended = true;
+            for (E change : log.end(start)) {
+                apply.accept(change);
+            }
+        }
+
+        @Override
+        public void close() {
+            if (!ended) {
+                ended = true;
+                log.end(start);
+            }
+        }
+    }
+}
@@ -0,0 +1,886 @@
+package backend.user_profile_backend.service;
+
+import backend.user_profile_backend.model.Cart;
+import backend.user_profile_backend.model.Product;
+import backend.user_profile_backend.model.User;
+import backend.user_profile_backend.repository.CartRepository;
+import backend.user_profile_backend.repository.UserRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.UnaryOperator;
+
+// Optional write-behind engine for carts, switched on with cart.write-behind.enabled.
+// Active carts live in memory keyed by userId, each user guarded by one of a fixed set of
+// stripe locks, and reads are answered from memory. A mutation only marks its (user, product)
+// pair dirty; a single flusher writes the latest state of every dirty pair in batched
+// transactions, oldest dirty user first, every cart.write-behind.flush-interval-ms.
+// A flush takes a user's dirty marks when it snapshots their cart and puts them back if the
+// write fails, so a failed flush is retried instead of lost. Retries back off per cart, doubling
+// up to a minute; only a write the database rejects outright (a constraint violation) gives up
+// on the changes, as retrying it cannot succeed. While a snapshot is being written
+// the cart must stay resident, which is why everything that forgets carts takes flushLock.
+// Carts are loaded outside the stripe locks, so one slow read does not hold up every user that
+// shares its stripe. Code that reads the cart table directly calls flushUser first, before it
+// opens a transaction: a flush commits on a connection of its own.
+@Component
+public class WriteBehindCartStore {
+
+    private static final int STRIPES = 64;
+    private static final long MAX_RETRY_DELAY_MILLIS = 60_000;
+    private static final int IDLE_SWEEP_EVERY_TICKS = 100;
+
+    private static final String INSERT_SQL =
+            "INSERT INTO cart (user_id, product_id, quantity, created_at, updated_at) VALUES (?, ?, ?, ?, ?)";
+    private static final String UPDATE_SQL =
+            "UPDATE cart SET quantity = ?, updated_at = ? WHERE user_id = ? AND product_id = ?";
+    private static final String DELETE_SQL =
+            "DELETE FROM cart WHERE user_id = ? AND product_id = ?";
+    private static final String STORED_PRODUCTS_SQL =
+            "SELECT product_id FROM cart WHERE user_id = ?";
+
+    private final boolean enabled;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate flushTransaction;
+    private final TransactionTemplate readTransaction;
+    private final CartRepository cartRepository;
+    private final UserRepository userRepository;
+    private final ProductService productService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final long flushIntervalMs;
+    private final int batchSize;
+    private final int maxPendingUsers;
+    private final long idleNanos;
+
+    private final Object[] stripes = new Object[STRIPES];
+    // Carts taken out of memory per stripe, so a load that raced a removal is not installed
+    private final long[] removals = new long[STRIPES];
+    private final Map<Long, UserCart> carts = new ConcurrentHashMap<>();
+    // Users with unflushed changes, in the order they first became dirty
+    private final Queue<Long> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingUsers = new AtomicInteger();
+    // Resident carts whose last write failed and that are waiting to retry
+    private final AtomicInteger retryingUsers = new AtomicInteger();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final ScheduledExecutorService flusher;
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private int ticks;
+
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong rowsWritten = new AtomicLong();
+    private final AtomicLong failedFlushes = new AtomicLong();
+    private final AtomicLong droppedUsers = new AtomicLong();
+    private final AtomicLong maxLagMillis = new AtomicLong();
+
+    public WriteBehindCartStore(JdbcTemplate jdbcTemplate,
+                                PlatformTransactionManager transactionManager,
+                                CartRepository cartRepository,
+                                UserRepository userRepository,
+                                ProductService productService,
+                                ApplicationEventPublisher eventPublisher,
+                                @Value("${cart.write-behind.enabled:false}") boolean enabled,
+                                @Value("${cart.write-behind.flush-interval-ms:250}") long flushIntervalMs,
+                                @Value("${cart.write-behind.batch-size:200}") int batchSize,
+                                @Value("${cart.write-behind.max-pending-users:2000}") int maxPendingUsers,
+                                @Value("${cart.write-behind.idle-minutes:30}") long idleMinutes) {
+        this.enabled = enabled;
+        this.jdbcTemplate = jdbcTemplate;
+        // Flushes commit on their own, even when forced from inside a caller's transaction
+        this.flushTransaction = new TransactionTemplate(transactionManager);
+        this.flushTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
+        this.cartRepository = cartRepository;
+        this.userRepository = userRepository;
+        this.productService = productService;
+        this.eventPublisher = eventPublisher;
+        this.flushIntervalMs = flushIntervalMs;
+        this.batchSize = batchSize;
+        this.maxPendingUsers = maxPendingUsers;
+        this.idleNanos = TimeUnit.MINUTES.toNanos(idleMinutes);
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Object();
+        }
+        if (enabled) {
+            flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "cart-write-behind");
+                thread.setDaemon(true);
+                return thread;
+            });
+            flusher.scheduleWithFixedDelay(this::tick, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        } else {
+            flusher = null;
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Newest line first, like CartRepository.findByUserIdOrderByCreatedAtDesc; unknown users have empty carts
+    public List<Cart> getCart(Long userId) {
+        List<LineView> lines;
+        User user;
+        if (!preload(userId)) {
+            return List.of();
+        }
+        synchronized (stripeFor(userId)) {
+            UserCart cart = resident(userId, false);
+            if (cart == null) {
+                return List.of();
+            }
+            user = cart.user;
+            lines = cart.views();
+        }
+        lines.sort(Comparator.comparing((LineView line) -> line.createdAt,
+                Comparator.nullsLast(Comparator.<LocalDateTime>reverseOrder())));
+        List<Cart> items = new ArrayList<>(lines.size());
+        for (LineView line : lines) {
+            items.add(toCart(user, line));
+        }
+        return items;
+    }
+
+    // Current quantity of each of the given products in the user's cart; absent ones are left out
+    public Map<Long, Long> getQuantities(Long userId, Set<Long> productIds) {
+        Map<Long, Long> quantities = new HashMap<>();
+        if (!preload(userId)) {
+            return quantities;
+        }
+        synchronized (stripeFor(userId)) {
+            UserCart cart = resident(userId, false);
+            if (cart != null) {
+                for (Long productId : productIds) {
+                    Line line = cart.lines.get(productId);
+                    if (line != null) {
+                        quantities.put(productId, line.quantity);
+                    }
+                }
+            }
+        }
+        return quantities;
+    }
+
+    public boolean contains(Long userId, Long productId) {
+        if (!preload(userId)) {
+            return false;
+        }
+        synchronized (stripeFor(userId)) {
+            UserCart cart = resident(userId, false);
+            return cart != null && cart.lines.containsKey(productId);
+        }
+    }
+
+    // Adds to the quantity already in the cart; the caller has checked the product and stock
+    public Cart add(Long userId, Product product, long quantity) {
+        Cart item;
+        requireUser(userId);
+        synchronized (stripeFor(userId)) {
+            UserCart cart = resident(userId, true);
+            LocalDateTime now = LocalDateTime.now();
+            Line line = cart.lines.get(product.getId());
+            if (line == null) {
+                line = new Line(product, quantity, now);
+                cart.lines.put(product.getId(), line);
+            } else {
+                line.product = product;
+                line.quantity += quantity;
+                line.updatedAt = now;
+            }
+            markDirty(userId, cart, product.getId());
+            item = toCart(cart.user, cart.view(product.getId(), line));
+        }
+        // Events go out after the stripe is released, so listeners may call back into the store
+        eventPublisher.publishEvent(CartChangeEvent.line(userId, product.getId()));
+        applyBackpressure();
+        return item;
+    }
+
+    // Replaces the quantity of a line already in the cart
+    public Cart set(Long userId, Product product, long quantity) {
+        Cart item;
+        requireUser(userId);
+        synchronized (stripeFor(userId)) {
+            UserCart cart = resident(userId, true);
+            Line line = cart.lines.get(product.getId());
+            if (line == null) {
+                throw new IllegalArgumentException("Cart item not found for user: " + userId + " and product: " + product.getId());
+            }
+            line.product = product;
+            line.quantity = quantity;
+            line.updatedAt = LocalDateTime.now();
+            markDirty(userId, cart, product.getId());
+            item = toCart(cart.user, cart.view(product.getId(), line));
+        }
+        eventPublisher.publishEvent(CartChangeEvent.line(userId, product.getId()));
+        applyBackpressure();
+        return item;
+    }
+
+    // Applies several line changes as one step. change maps the current quantities by product
+    // to the new ones and may throw to reject them all, in which case the cart is left as it was.
+    // products must hold every product change adds.
+    public List<Cart> update(Long userId, UnaryOperator<Map<Long, Long>> change, Map<Long, Product> products) {
+        Set<Long> changed = new HashSet<>();
+        requireUser(userId);
+        synchronized (stripeFor(userId)) {
+            UserCart cart = resident(userId, true);
+            Map<Long, Long> current = new LinkedHashMap<>();
+            cart.lines.forEach((productId, line) -> current.put(productId, line.quantity));
+            Map<Long, Long> next = change.apply(new LinkedHashMap<>(current));
+            LocalDateTime now = LocalDateTime.now();
+            for (Long productId : current.keySet()) {
+                if (!next.containsKey(productId)) {
+                    cart.lines.remove(productId);
+                    markDirty(userId, cart, productId);
+                    changed.add(productId);
+                }
+            }
+            for (Map.Entry<Long, Long> entry : next.entrySet()) {
+                Long productId = entry.getKey();
+                long quantity = entry.getValue();
+                Line line = cart.lines.get(productId);
+                if (line == null) {
+                    cart.lines.put(productId, new Line(products.get(productId), quantity, now));
+                    markDirty(userId, cart, productId);
+                    changed.add(productId);
+                } else if (line.quantity != quantity) {
+                    line.product = products.getOrDefault(productId, line.product);
+                    line.quantity = quantity;
+                    line.updatedAt = now;
+                    markDirty(userId, cart, productId);
+                    changed.add(productId);
+                }
+            }
+        }
+        if (!changed.isEmpty()) {
+            eventPublisher.publishEvent(new CartChangeEvent(userId, changed, false));
+        }
+        applyBackpressure();
+        return getCart(userId);
+    }
+
+    public void remove(Long userId, Long productId) {
+        boolean removed;
+        preload(userId);
+        synchronized (stripeFor(userId)) {
+            UserCart cart = resident(userId, false);
+            removed = cart != null && cart.lines.remove(productId) != null;
+            if (removed) {
+                markDirty(userId, cart, productId);
+            }
+        }
+        if (removed) {
+            eventPublisher.publishEvent(CartChangeEvent.line(userId, productId));
+        }
+        applyBackpressure();
+    }
+
+    public void clear(Long userId) {
+        preload(userId);
+        synchronized (stripeFor(userId)) {
+            UserCart cart = resident(userId, false);
+            if (cart != null) {
+                for (Long productId : new ArrayList<>(cart.lines.keySet())) {
+                    cart.lines.remove(productId);
+                    markDirty(userId, cart, productId);
+                }
+            }
+        }
+        eventPublisher.publishEvent(CartChangeEvent.cleared(userId));
+        applyBackpressure();
+    }
+
+    // Writes everything that is dirty right now, including carts waiting out a retry delay
+    public void flush() {
+        flush(false);
+    }
+
+    // What the flusher runs: carts still backing off after a failed write are left for later
+    void flushDue() {
+        flush(true);
+    }
+
+    private void flush(boolean dueOnly) {
+        if (!enabled) {
+            return;
+        }
+        flushLock.lock();
+        try {
+            // Bounded by the queue length on entry, so steady traffic cannot keep one flush going forever
+            int limit = pending.size();
+            long now = System.nanoTime();
+            List<Long> retry = new ArrayList<>();
+            List<UserFlush> batch = new ArrayList<>();
+            Long userId;
+            while (limit-- > 0 && (userId = pending.poll()) != null) {
+                if (dueOnly && backingOff(userId, now)) {
+                    retry.add(userId);
+                    continue;
+                }
+                UserFlush snapshot = snapshot(userId);
+                if (snapshot != null) {
+                    batch.add(snapshot);
+                }
+                if (batch.size() == batchSize) {
+                    retry.addAll(write(batch));
+                    batch = new ArrayList<>();
+                }
+            }
+            if (!batch.isEmpty()) {
+                retry.addAll(write(batch));
+            }
+            pending.addAll(retry);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    // Makes the user's cart rows in the database current before someone reads them directly.
+    // Call it outside any transaction: waiting here while holding a pooled connection, for a
+    // write that needs a second one, can leave every connection waiting on another.
+    public void flushUser(Long userId) {
+        if (!enabled) {
+            return;
+        }
+        flushLock.lock();
+        try {
+            // The user's queue entry stays behind and is skipped once its cart is clean
+            UserFlush snapshot = snapshot(userId);
+            if (snapshot != null && !write(List.of(snapshot)).isEmpty()) {
+                pending.add(userId);
+                throw new IllegalStateException("Could not save the cart of user " + userId);
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    // Forgets the user's cart so the next access reloads it, now and again once the current
+    // transaction finishes (for callers that change cart rows in the database themselves)
+    public void evict(Long userId) {
+        if (!enabled) {
+            return;
+        }
+        drop(userId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    drop(userId);
+                }
+            });
+        }
+    }
+
+    // Like evict, for callers that deleted cart rows in transactions of their own (the abandoned
+    // cart sweeper), but changes made since their flush are written first rather than dropped
+    // with the cart. The user's stripe is held from the write to the eviction so no change can
+    // slip in between. Returns false when the write fails; the cart then stays, queued again.
+    public boolean saveAndEvict(Long userId) {
+        if (!enabled) {
+            return true;
+        }
+        flushLock.lock();
+        try {
+            synchronized (stripeFor(userId)) {
+                UserCart cart = carts.get(userId);
+                if (cart != null && cart.queued) {
+                    // A changed line whose row was deleted must be inserted again, not updated
+                    Set<Long> stored = new HashSet<>(jdbcTemplate.queryForList(STORED_PRODUCTS_SQL, Long.class, userId));
+                    cart.rowIds.keySet().retainAll(stored);
+                }
+                UserFlush snapshot = snapshot(userId);
+                if (snapshot != null && !write(List.of(snapshot)).isEmpty()) {
+                    pending.add(userId);
+                    return false;
+                }
+                drop(userId);
+                return true;
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (flusher != null) {
+            flusher.shutdown();
+            flush();
+        }
+    }
+
+    public Map<String, Long> getStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled ? 1L : 0L);
+        stats.put("residentUsers", (long) carts.size());
+        stats.put("pendingUsers", (long) pendingUsers.get());
+        stats.put("retryingUsers", (long) retryingUsers.get());
+        stats.put("flushes", flushes.get());
+        stats.put("rowsWritten", rowsWritten.get());
+        stats.put("failedFlushes", failedFlushes.get());
+        stats.put("droppedUsers", droppedUsers.get());
+        stats.put("maxLagMillis", maxLagMillis.get());
+        return stats;
+    }
+
+    private void tick() {
+        try {
+            flushDue();
+            if (++ticks % IDLE_SWEEP_EVERY_TICKS == 0) {
+                evictIdle();
+            }
+        } catch (RuntimeException e) {
+            // An exception would cancel the schedule; the failed users are already queued again
+            System.err.println("Cart flush failed: " + e.getMessage());
+        }
+    }
+
+    // A cart whose snapshot is being written is not queued but must not be forgotten: a failed
+    // write restores its marks into it. Holding flushLock keeps evictions between flushes.
+    void evictIdle() {
+        flushLock.lock();
+        try {
+            long now = System.nanoTime();
+            for (Long userId : carts.keySet()) {
+                synchronized (stripeFor(userId)) {
+                    UserCart cart = carts.get(userId);
+                    if (cart != null && !cart.queued && now - cart.lastAccess > idleNanos) {
+                        carts.remove(userId);
+                        forget(userId, cart);
+                    }
+                }
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    // Caller-runs flush when writers get too far ahead of the flusher, which bounds both lag and memory.
+    // A caller inside a transaction holds a connection the flush may need, so it only wakes the flusher.
+    private void applyBackpressure() {
+        if (pendingUsers.get() <= maxPendingUsers) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            flushDue();
+        } else if (flushRequested.compareAndSet(false, true)) {
+            try {
+                flusher.execute(() -> {
+                    flushRequested.set(false);
+                    tick();
+                });
+            } catch (RejectedExecutionException e) {
+                // Shutting down; the final flush writes what is left
+                flushRequested.set(false);
+            }
+        }
+    }
+
+    private void drop(Long userId) {
+        synchronized (stripeFor(userId)) {
+            UserCart cart = carts.remove(userId);
+            if (cart != null) {
+                forget(userId, cart);
+            }
+        }
+    }
+
+    // Called with the user's stripe held, for a cart just taken out of carts
+    private void forget(Long userId, UserCart cart) {
+        removals[stripeIndex(userId)]++;
+        if (cart.queued) {
+            cart.queued = false;
+            pendingUsers.decrementAndGet();
+        }
+        if (cart.failedFlushes > 0) {
+            cart.failedFlushes = 0;
+            retryingUsers.decrementAndGet();
+        }
+    }
+
+    private boolean backingOff(Long userId, long now) {
+        synchronized (stripeFor(userId)) {
+            UserCart cart = carts.get(userId);
+            return cart != null && cart.failedFlushes > 0 && now - cart.retryAt < 0;
+        }
+    }
+
+    private Object stripeFor(Long userId) {
+        return stripes[stripeIndex(userId)];
+    }
+
+    private static int stripeIndex(Long userId) {
+        return Math.floorMod(userId.hashCode(), STRIPES);
+    }
+
+    private void requireUser(Long userId) {
+        if (!preload(userId)) {
+            throw new IllegalArgumentException("User not found with id: " + userId);
+        }
+    }
+
+    // Makes the user's cart resident, reading it without the stripe held; false for unknown users.
+    // If the stripe lost a cart while the read ran, the copy may predate a change that was saved
+    // and forgotten meanwhile, so it is thrown away and resident() reads again under the stripe.
+    private boolean preload(Long userId) {
+        long seenRemovals;
+        synchronized (stripeFor(userId)) {
+            if (carts.containsKey(userId)) {
+                return true;
+            }
+            seenRemovals = removals[stripeIndex(userId)];
+        }
+        UserCart loaded = readTransaction.execute(status -> load(userId));
+        if (loaded == null) {
+            return false;
+        }
+        synchronized (stripeFor(userId)) {
+            if (!carts.containsKey(userId) && removals[stripeIndex(userId)] == seenRemovals) {
+                loaded.lastAccess = System.nanoTime();
+                carts.put(userId, loaded);
+            }
+        }
+        return true;
+    }
+
+    // Called with the user's stripe held, after preload; loads only if the cart went in between
+    private UserCart resident(Long userId, boolean required) {
+        UserCart cart = carts.get(userId);
+        if (cart == null) {
+            cart = readTransaction.execute(status -> load(userId));
+            if (cart == null) {
+                if (required) {
+                    throw new IllegalArgumentException("User not found with id: " + userId);
+                }
+                return null;
+            }
+            carts.put(userId, cart);
+        }
+        cart.lastAccess = System.nanoTime();
+        return cart;
+    }
+
+    private UserCart load(Long userId) {
+        User user = userRepository.findById(userId).orElse(null);
+        if (user == null) {
+            return null;
+        }
+        UserCart cart = new UserCart(user);
+        for (Cart row : cartRepository.findByUserId(userId)) {
+            Long productId = row.getProduct().getId();
+            Product product = productService.getProductById(productId).orElse(null);
+            Line line = new Line(product, row.getQuantity(), row.getCreatedAt());
+            line.updatedAt = row.getUpdatedAt();
+            cart.lines.put(productId, line);
+            cart.rowIds.put(productId, row.getId());
+        }
+        return cart;
+    }
+
+    // Called with the user's stripe held
+    private void markDirty(Long userId, UserCart cart, Long productId) {
+        cart.dirty.add(productId);
+        if (!cart.queued) {
+            cart.queued = true;
+            cart.dirtySince = System.nanoTime();
+            pendingUsers.incrementAndGet();
+            pending.add(userId);
+        }
+    }
+
+    // Takes the user's dirty pairs for writing; the marks come back if the write fails
+    private UserFlush snapshot(Long userId) {
+        synchronized (stripeFor(userId)) {
+            UserCart cart = carts.get(userId);
+            if (cart == null || !cart.queued) {
+                return null;
+            }
+            UserFlush flush = new UserFlush(userId, cart);
+            for (Long productId : cart.dirty) {
+                Line line = cart.lines.get(productId);
+                boolean stored = cart.rowIds.containsKey(productId);
+                if (line == null) {
+                    if (stored) {
+                        flush.deletes.add(new RowWrite(productId, 0, null, null));
+                    }
+                } else if (stored) {
+                    flush.updates.add(new RowWrite(productId, line.quantity, line.createdAt, line.updatedAt));
+                } else {
+                    flush.inserts.add(new RowWrite(productId, line.quantity, line.createdAt, line.updatedAt));
+                }
+            }
+            flush.productIds.addAll(cart.dirty);
+            cart.dirty.clear();
+            cart.queued = false;
+            pendingUsers.decrementAndGet();
+            return flush;
+        }
+    }
+
+    // Writes the snapshots in one transaction, falling back to one per user so a bad row only
+    // holds back its own cart. Returns the users whose writes failed and are queued again.
+    private List<Long> write(List<UserFlush> batch) {
+        try {
+            List<Long> keys = flushTransaction.execute(status -> writeRows(batch));
+            applyKeys(batch, keys);
+            return List.of();
+        } catch (RuntimeException batchFailure) {
+            if (batch.size() == 1) {
+                return restore(batch.get(0), batchFailure);
+            }
+            List<Long> failed = new ArrayList<>();
+            for (UserFlush flush : batch) {
+                try {
+                    List<Long> keys = flushTransaction.execute(status -> writeRows(List.of(flush)));
+                    applyKeys(List.of(flush), keys);
+                } catch (RuntimeException e) {
+                    failed.addAll(restore(flush, e));
+                }
+            }
+            return failed;
+        }
+    }
+
+    // Deletes go first so a line removed and added back cannot collide on (user_id, product_id)
+    private List<Long> writeRows(List<UserFlush> batch) {
+        List<Object[]> deletes = new ArrayList<>();
+        List<Object[]> updates = new ArrayList<>();
+        List<Object[]> inserts = new ArrayList<>();
+        for (UserFlush flush : batch) {
+            for (RowWrite row : flush.deletes) {
+                deletes.add(new Object[]{flush.userId, row.productId});
+            }
+            for (RowWrite row : flush.updates) {
+                updates.add(new Object[]{row.quantity, Timestamp.valueOf(row.updatedAt), flush.userId, row.productId});
+            }
+            for (RowWrite row : flush.inserts) {
+                inserts.add(new Object[]{flush.userId, row.productId, row.quantity,
+                        Timestamp.valueOf(row.createdAt), Timestamp.valueOf(row.updatedAt)});
+            }
+        }
+        if (!deletes.isEmpty()) {
+            jdbcTemplate.batchUpdate(DELETE_SQL, deletes);
+        }
+        if (!updates.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPDATE_SQL, updates);
+        }
+        List<Long> keys = new ArrayList<>();
+        if (!inserts.isEmpty()) {
+            GeneratedKeyHolder keyHolder = new GeneratedKeyHolder();
+            jdbcTemplate.batchUpdate(con -> con.prepareStatement(INSERT_SQL, new String[]{"id"}),
+                    new BatchPreparedStatementSetter() {
+                        @Override
+                        public void setValues(PreparedStatement ps, int i) throws SQLException {
+                            Object[] values = inserts.get(i);
+                            for (int column = 0; column < values.length; column++) {
+                                ps.setObject(column + 1, values[column]);
+                            }
+                        }
+
+                        @Override
+                        public int getBatchSize() {
+                            return inserts.size();
+                        }
+                    }, keyHolder);
+            // MySQL names the key GENERATED_KEY and PostgreSQL id; either way it is the only column
+            for (Map<String, Object> key : keyHolder.getKeyList()) {
+                keys.add(((Number) key.values().iterator().next()).longValue());
+            }
+        }
+        rowsWritten.addAndGet(deletes.size() + updates.size() + inserts.size());
+        return keys;
+    }
+
+    private void applyKeys(List<UserFlush> batch, List<Long> keys) {
+        int next = 0;
+        long now = System.nanoTime();
+        for (UserFlush flush : batch) {
+            synchronized (stripeFor(flush.userId)) {
+                for (RowWrite row : flush.deletes) {
+                    flush.cart.rowIds.remove(row.productId);
+                }
+                for (RowWrite row : flush.inserts) {
+                    flush.cart.rowIds.put(row.productId, keys.get(next++));
+                }
+                if (flush.cart.failedFlushes > 0 && carts.get(flush.userId) == flush.cart) {
+                    flush.cart.failedFlushes = 0;
+                    retryingUsers.decrementAndGet();
+                }
+            }
+            maxLagMillis.accumulateAndGet(TimeUnit.NANOSECONDS.toMillis(now - flush.dirtySince), Math::max);
+        }
+        flushes.incrementAndGet();
+    }
+
+    private List<Long> restore(UserFlush flush, RuntimeException cause) {
+        failedFlushes.incrementAndGet();
+        synchronized (stripeFor(flush.userId)) {
+            UserCart cart = flush.cart;
+            if (carts.get(flush.userId) != cart) {
+                // Evicted meanwhile; the database copy is what the next access will see
+                return List.of();
+            }
+            if (cause instanceof DataIntegrityViolationException) {
+                carts.remove(flush.userId);
+                forget(flush.userId, cart);
+                droppedUsers.incrementAndGet();
+                System.err.println("Dropping unsaved cart changes of user " + flush.userId + ": " + cause.getMessage());
+            } else {
+                if (cart.failedFlushes++ == 0) {
+                    retryingUsers.incrementAndGet();
+                    System.err.println("Could not save the cart of user " + flush.userId + ", retrying: " + cause.getMessage());
+                }
+                long delay = Math.min(flushIntervalMs << Math.min(cart.failedFlushes - 1, 20), MAX_RETRY_DELAY_MILLIS);
+                cart.retryAt = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delay);
+                cart.dirty.addAll(flush.productIds);
+                if (cart.queued) {
+                    // Changed again since the snapshot; that queue entry covers the retry
+                    return List.of();
+                }
+                cart.queued = true;
+                cart.dirtySince = flush.dirtySince;
+                pendingUsers.incrementAndGet();
+                return List.of(flush.userId);
+            }
+        }
+        // The cart goes back to what the table holds
+        eventPublisher.publishEvent(CartChangeEvent.cleared(flush.userId));
+        return List.of();
+    }
+
+    private Cart toCart(User user, LineView line) {
+        Product product = productService.getProductById(line.productId).orElse(line.product);
+        Cart item = new Cart(user, product, line.quantity);
+        item.setId(line.id);
+        item.setCreatedAt(line.createdAt);
+        item.setUpdatedAt(line.updatedAt);
+        return item;
+    }
+
+    private static class UserCart {
+        private final User user;
+        private final Map<Long, Line> lines = new LinkedHashMap<>();
+        // cart.id of the rows the database holds for this user, by product
+        private final Map<Long, Long> rowIds = new HashMap<>();
+        private final Set<Long> dirty = new HashSet<>();
+        private boolean queued;
+        private long dirtySince;
+        private long lastAccess;
+        private int failedFlushes;
+        private long retryAt;
+
+        private UserCart(User user) {
+            this.user = user;
+        }
+
+        private LineView view(Long productId, Line line) {
+            return new LineView(rowIds.get(productId), productId, line.product, line.quantity, line.createdAt, line.updatedAt);
+        }
+
+        private List<LineView> views() {
+            List<LineView> views = new ArrayList<>(lines.size());
+            lines.forEach((productId, line) -> views.add(view(productId, line)));
+            return views;
+        }
+    }
+
+    private static class Line {
+        private Product product;
+        private long quantity;
+        private final LocalDateTime createdAt;
+        private LocalDateTime updatedAt;
+
+        private Line(Product product, long quantity, LocalDateTime createdAt) {
+            this.product = product;
+            this.quantity = quantity;
+            this.createdAt = createdAt;
+            this.updatedAt = createdAt;
+        }
+    }
+
+    // Immutable copy of a line, safe to use after the stripe lock is released
+    private static class LineView {
+        private final Long id;
+        private final Long productId;
+        private final Product product;
+        private final long quantity;
+        private final LocalDateTime createdAt;
+        private final LocalDateTime updatedAt;
+
+        private LineView(Long id, Long productId, Product product, long quantity,
+                         LocalDateTime createdAt, LocalDateTime updatedAt) {
+            this.id = id;
+            this.productId = productId;
+            this.product = product;
+            this.quantity = quantity;
+            this.createdAt = createdAt;
+            this.updatedAt = updatedAt;
+        }
+    }
+
+    private static class RowWrite {
+        private final Long productId;
+        private final long quantity;
+        private final LocalDateTime createdAt;
+        private final LocalDateTime updatedAt;
+
+        private RowWrite(Long productId, long quantity, LocalDateTime createdAt, LocalDateTime updatedAt) {
+            this.productId = productId;
+            this.quantity = quantity;
+            this.createdAt = createdAt;
+            this.updatedAt = updatedAt;
+        }
+    }
+
+    private static class UserFlush {
+        private final Long userId;
+        private final UserCart cart;
+        private final long dirtySince;
+        private final Set<Long> productIds = new HashSet<>();
+        private final List<RowWrite> deletes = new ArrayList<>();
+        private final List<RowWrite> updates = new ArrayList<>();
+        private final List<RowWrite> inserts = new ArrayList<>();
+
+        private UserFlush(Long userId, UserCart cart) {
+            this.userId = userId;
+            this.cart = cart;
+            this.dirtySince = cart.dirtySince;
+        }
+    }
+}
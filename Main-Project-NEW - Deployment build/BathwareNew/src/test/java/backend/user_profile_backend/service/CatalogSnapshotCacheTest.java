@@ -0,0 +1,31 @@
+package backend.user_profile_backend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class CatalogSnapshotCacheTest {
+
+    private final CatalogSnapshotCache cache = new CatalogSnapshotCache(new ObjectMapper(), 100);
+
+    @Test
+    void snapshotKeptAcrossAProductChangeCarriesTheNewValidator() {
+        JsonSnapshot before = cache.get(CatalogSnapshotCache.ALL_CATEGORIES, () -> List.of("Basins"));
+        String oldEtag = cache.getEtag();
+
+        // Another product changes; the categories snapshot stays cached
+        cache.onProductChange(new ProductChangeEvent(9L, null, null));
+        JsonSnapshot after = cache.get(CatalogSnapshotCache.ALL_CATEGORIES, () -> List.of("Reloaded"));
+
+        assertEquals(oldEtag, before.getEtag());
+        assertNotEquals(oldEtag, after.getEtag());
+        assertEquals(cache.getEtag(), after.getEtag());
+        assertEquals(cache.getLastModified(), after.getLastModified());
+        assertEquals("[\"Basins\"]", new String(after.getJson()));
+        assertEquals(1L, cache.getStats().get("hits"));
+    }
+}
@@ -0,0 +1,48 @@
+package backend.user_profile_backend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IdempotencyStoreTest {
+
+    private final IdempotencyStore store = new IdempotencyStore(new ObjectMapper(), 60, 1, 1);
+
+    @Test
+    void fullStoreKeepsRunningKeysAndMakesRoomFromFinishedOnes() throws Exception {
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread first = new Thread(() -> store.execute("test", "a", "1", () -> {
+            running.countDown();
+            await(release);
+            return ResponseEntity.ok("first");
+        }));
+        first.start();
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+
+        // The only slot is running, so a new key cannot take it
+        assertEquals(503, store.execute("test", "b", "1", () -> ResponseEntity.ok("second"))
+                .getStatusCode().value());
+
+        release.countDown();
+        first.join(5000);
+
+        assertEquals("third", store.execute("test", "c", "1", () -> ResponseEntity.ok("third")).getBody());
+        assertEquals(1L, store.getStats().get("size"));
+        assertEquals(1L, store.getStats().get("rejected"));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
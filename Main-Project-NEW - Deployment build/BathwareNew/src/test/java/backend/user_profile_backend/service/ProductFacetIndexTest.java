@@ -0,0 +1,106 @@
+package backend.user_profile_backend.service;
+
+import backend.user_profile_backend.dto.ProductCard;
+import backend.user_profile_backend.dto.ProductFilterResult;
+import backend.user_profile_backend.dto.ProductView;
+import backend.user_profile_backend.model.Category;
+import backend.user_profile_backend.model.Product;
+import backend.user_profile_backend.repository.ProductRepository;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ProductFacetIndexTest {
+
+    private final ProductRepository productRepository = mock(ProductRepository.class);
+    private final ProductFacetIndex index = new ProductFacetIndex(productRepository,
+            new BigDecimal[] {new BigDecimal("5000")});
+
+    @Test
+    void pagesFollowIdOrderWhateverOrderTheCatalogLoadsIn() {
+        when(productRepository.findByIsActiveTrue()).thenReturn(List.of(
+                product(5L, 1L, 10L), product(2L, 1L, 10L), product(9L, 1L, 10L), product(4L, 1L, 10L)));
+        index.rebuild();
+
+        assertEquals(List.of(2L, 4L, 5L, 9L), allIds(2));
+    }
+
+    @Test
+    void olderProductActivatedAgainTakesItsPlaceInIdOrder() {
+        when(productRepository.findByIsActiveTrue()).thenReturn(List.of(product(3L, 1L, 10L), product(7L, 1L, 10L)));
+        index.rebuild();
+
+        index.onProductChange(new ProductChangeEvent(1L, product(1L, 1L, 10L), null));
+        index.onProductChange(new ProductChangeEvent(5L, product(5L, 1L, 10L), null));
+        index.onProductChange(new ProductChangeEvent(8L, product(8L, 1L, 10L), null));
+
+        assertEquals(List.of(1L, 3L, 5L, 7L, 8L), allIds(2));
+    }
+
+    @Test
+    void removedProductsLeaveThePagesAndCanComeBack() {
+        List<Product> catalog = new ArrayList<>();
+        for (long id = 1; id <= 10; id++) {
+            catalog.add(product(id, id % 2, 10L));
+        }
+        when(productRepository.findByIsActiveTrue()).thenReturn(catalog);
+        index.rebuild();
+
+        // Enough removals to compact the ordinals
+        for (long id = 1; id <= 7; id++) {
+            index.onProductChange(new ProductChangeEvent(id, null, null));
+        }
+        index.onProductChange(new ProductChangeEvent(4L, product(4L, 0L, 10L), null));
+
+        assertEquals(List.of(4L, 8L, 9L, 10L), allIds(3));
+        ProductFilterResult evens = index.filter(0L, null, null, null, null, null, 10, ProductView.CARD);
+        assertEquals(List.of(4L, 8L, 10L), ids(evens));
+        assertEquals(3, evens.getTotal());
+    }
+
+    @Test
+    void pageStopsAtTheCursorAndFilters() {
+        when(productRepository.findByIsActiveTrue()).thenReturn(List.of(
+                product(1L, 1L, 0L), product(2L, 1L, 10L), product(3L, 2L, 10L), product(4L, 1L, 10L)));
+        index.rebuild();
+
+        ProductFilterResult page = index.filter(1L, null, null, true, null, new PageCursor("", 2L), 1, ProductView.CARD);
+
+        assertEquals(List.of(4L), ids(page));
+        assertNull(page.getNextCursor());
+        assertEquals(2, page.getTotal());
+    }
+
+    // Walks every page of the unfiltered catalog
+    private List<Long> allIds(int size) {
+        List<Long> ids = new ArrayList<>();
+        PageCursor cursor = null;
+        do {
+            ProductFilterResult page = index.filter(null, null, null, null, null, cursor, size, ProductView.CARD);
+            ids.addAll(ids(page));
+            cursor = page.getNextCursor() != null ? PageCursor.decode(page.getNextCursor()) : null;
+        } while (cursor != null);
+        return ids;
+    }
+
+    private static List<Long> ids(ProductFilterResult result) {
+        return result.getItems().stream().map(ProductCard::getId).toList();
+    }
+
+    private static Product product(Long id, Long categoryId, Long stock) {
+        Category category = new Category();
+        category.setId(categoryId);
+        category.setName("Category " + categoryId);
+        Product product = new Product("Product " + id, "", category, new BigDecimal("1000.00"));
+        product.setId(id);
+        product.setStockQuantity(stock);
+        return product;
+    }
+}
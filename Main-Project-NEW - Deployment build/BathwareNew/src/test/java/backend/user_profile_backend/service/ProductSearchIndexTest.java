@@ -0,0 +1,98 @@
+package backend.user_profile_backend.service;
+
+import backend.user_profile_backend.dto.CursorPage;
+import backend.user_profile_backend.model.Product;
+import backend.user_profile_backend.repository.ProductRepository;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ProductSearchIndexTest {
+
+    private final ProductRepository productRepository = mock(ProductRepository.class);
+    private final ProductSearchIndex index = new ProductSearchIndex(productRepository);
+
+    @Test
+    void changeCommittedDuringRebuildSurvivesTheReload() {
+        Product stale = product(1L, "Ceramic Basin", 5L);
+        Product renamed = product(1L, "Marble Basin", 5L);
+        // The change commits after the rebuild has read the catalog but before it takes the lock
+        when(productRepository.findByIsActiveTrue()).thenAnswer(invocation -> {
+            index.onProductChange(new ProductChangeEvent(1L, renamed, null));
+            return List.of(stale);
+        });
+
+        index.rebuild();
+
+        assertEquals(List.of(renamed), index.search("marble", null));
+        assertTrue(index.search("ceramic", null).isEmpty());
+    }
+
+    @Test
+    void deletionDuringRebuildIsNotUndone() {
+        when(productRepository.findByIsActiveTrue()).thenAnswer(invocation -> {
+            index.onProductChange(new ProductChangeEvent(2L, null, null));
+            return List.of(product(2L, "Shower Mixer", 3L));
+        });
+
+        index.rebuild();
+
+        assertTrue(index.search("mixer", null).isEmpty());
+    }
+
+    @Test
+    void changesAfterRebuildAreAppliedDirectly() {
+        when(productRepository.findByIsActiveTrue()).thenReturn(List.of(product(3L, "Towel Rail", 4L)));
+        index.rebuild();
+
+        index.onProductChange(new ProductChangeEvent(3L, product(3L, "Heated Towel Rail", 4L), null));
+
+        assertEquals(1, index.search("heated", null).size());
+    }
+
+    @Test
+    void tokenInsideAWordMatchesLikeTheSubstringSearchDid() {
+        when(productRepository.findByIsActiveTrue()).thenReturn(List.of(
+                product(4L, "Ceramic Basin", 2L), product(5L, "Towel Rail", 2L)));
+        index.rebuild();
+
+        assertEquals(List.of(4L), ids(index.search("asin", null)));
+        assertEquals(List.of(5L), ids(index.search("owel", null)));
+    }
+
+    @Test
+    void pagesWalkTheRankingAndSeeLaterChanges() {
+        when(productRepository.findByIsActiveTrue()).thenReturn(List.of(
+                product(6L, "Basin Mixer", 1L), product(7L, "Basin Tap", 1L), product(8L, "Basin Waste", 1L)));
+        index.rebuild();
+
+        CursorPage<Product> first = index.searchPage("basin", null, null, 2);
+        CursorPage<Product> second = index.searchPage("basin", null, PageCursor.decode(first.getNextCursor()), 2);
+        assertEquals(List.of(6L, 7L), ids(first.getItems()));
+        assertEquals(List.of(8L), ids(second.getItems()));
+        assertNull(second.getNextCursor());
+
+        index.onProductChange(new ProductChangeEvent(9L, product(9L, "Basin Plug", 1L), null));
+
+        assertEquals(4, index.search("basin", null).size());
+    }
+
+    private static List<Long> ids(List<Product> products) {
+        return products.stream().map(Product::getId).toList();
+    }
+
+    private static Product product(Long id, String name, Long stock) {
+        Product product = new Product(name, "", null, new BigDecimal("1000.00"));
+        product.setId(id);
+        product.setIsActive(true);
+        product.setStockQuantity(stock);
+        return product;
+    }
+}
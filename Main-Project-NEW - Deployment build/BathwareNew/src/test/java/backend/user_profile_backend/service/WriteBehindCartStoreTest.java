@@ -0,0 +1,320 @@
+package backend.user_profile_backend.service;
+
+import backend.user_profile_backend.model.Cart;
+import backend.user_profile_backend.model.Product;
+import backend.user_profile_backend.model.User;
+import backend.user_profile_backend.repository.CartRepository;
+import backend.user_profile_backend.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.stubbing.Answer;
+import org.mockito.stubbing.OngoingStubbing;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class WriteBehindCartStoreTest {
+
+    private static final Long USER_ID = 1L;
+    private static final Long PRODUCT_ID = 7L;
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final CartRepository cartRepository = mock(CartRepository.class);
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final ProductService productService = mock(ProductService.class);
+    private final Product product = new Product("Basin Mixer", "", null, new BigDecimal("4500.00"));
+    private final AtomicLong nextKey = new AtomicLong(100);
+
+    // Lets a test hold a flush inside its insert
+    private final CountDownLatch writing = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private WriteBehindCartStore store;
+
+    @BeforeEach
+    void setUp() {
+        User user = new User();
+        user.setUserId(USER_ID);
+        product.setId(PRODUCT_ID);
+        when(userRepository.findById(USER_ID)).thenReturn(Optional.of(user));
+        when(cartRepository.findByUserId(USER_ID)).thenReturn(List.of());
+        when(productService.getProductById(PRODUCT_ID)).thenReturn(Optional.of(product));
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        if (store != null) {
+            store.shutdown();
+        }
+    }
+
+    @Test
+    void failedFlushRestoresTheChangesForTheNextOne() {
+        store = store(30);
+        whenInserting()
+                .thenThrow(new DataAccessResourceFailureException("connection lost"))
+                .thenAnswer(insertRows());
+
+        store.add(USER_ID, product, 2);
+        store.flush();
+
+        assertEquals(1L, store.getStats().get("failedFlushes"));
+        assertEquals(1L, store.getStats().get("pendingUsers"));
+
+        store.flush();
+
+        assertEquals(0L, store.getStats().get("pendingUsers"));
+        List<Cart> cart = store.getCart(USER_ID);
+        assertEquals(1, cart.size());
+        assertEquals(101L, cart.get(0).getId());
+        assertEquals(2L, cart.get(0).getQuantity());
+    }
+
+    @Test
+    void repeatedWriteFailuresKeepTheChangesAndBackOff() {
+        store = store(30);
+        whenInserting()
+                .thenThrow(new DataAccessResourceFailureException("connection lost"))
+                .thenThrow(new DataAccessResourceFailureException("connection lost"))
+                .thenThrow(new DataAccessResourceFailureException("connection lost"))
+                .thenThrow(new DataAccessResourceFailureException("connection lost"))
+                .thenAnswer(insertRows());
+
+        store.add(USER_ID, product, 2);
+        for (int i = 0; i < 4; i++) {
+            store.flush();
+        }
+        assertEquals(0L, store.getStats().get("droppedUsers"));
+        assertEquals(1L, store.getStats().get("retryingUsers"));
+
+        // The flusher leaves the cart alone until its retry delay is up
+        store.flushDue();
+        verify(jdbcTemplate, times(4)).batchUpdate(any(PreparedStatementCreator.class),
+                any(BatchPreparedStatementSetter.class), any(KeyHolder.class));
+        assertEquals(1L, store.getStats().get("pendingUsers"));
+
+        store.flush();
+        assertEquals(0L, store.getStats().get("retryingUsers"));
+        assertEquals(0L, store.getStats().get("pendingUsers"));
+        assertEquals(101L, store.getCart(USER_ID).get(0).getId());
+    }
+
+    @Test
+    void writeTheDatabaseRejectsDropsTheChanges() {
+        store = store(30);
+        whenInserting().thenThrow(new DataIntegrityViolationException("fk_cart_product"));
+
+        store.add(USER_ID, product, 2);
+        store.flush();
+
+        assertEquals(1L, store.getStats().get("droppedUsers"));
+        assertEquals(0L, store.getStats().get("pendingUsers"));
+        assertEquals(0L, store.getStats().get("residentUsers"));
+        assertTrue(store.getCart(USER_ID).isEmpty());
+    }
+
+    @Test
+    void idleEvictionWaitsForAFlushInProgress() throws Exception {
+        // Every resident cart that is not queued counts as idle
+        store = store(0);
+        whenInserting().thenAnswer(invocation -> {
+            writing.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            throw new DataAccessResourceFailureException("connection lost");
+        });
+
+        store.add(USER_ID, product, 3);
+        Thread flush = start(store::flush);
+        assertTrue(writing.await(5, TimeUnit.SECONDS));
+
+        Thread evict = start(store::evictIdle);
+        evict.join(200);
+        assertTrue(evict.isAlive(), "eviction must wait for the flush");
+
+        release.countDown();
+        flush.join(5000);
+        evict.join(5000);
+
+        // The failed write found its cart and queued it again, so nothing was lost or evicted
+        assertEquals(1L, store.getStats().get("pendingUsers"));
+        assertEquals(1, store.getCart(USER_ID).size());
+    }
+
+    @Test
+    void clearWhileTheAddIsBeingWrittenDeletesTheRow() throws Exception {
+        store = store(30);
+        whenInserting().thenAnswer(holdThen(insertRows()));
+
+        store.add(USER_ID, product, 1);
+        Thread flush = start(store::flush);
+        assertTrue(writing.await(5, TimeUnit.SECONDS));
+
+        store.clear(USER_ID);
+        release.countDown();
+        flush.join(5000);
+        store.flush();
+
+        verify(jdbcTemplate).batchUpdate(argThat((String sql) -> sql.startsWith("DELETE")),
+                argThat((List<Object[]> rows) -> isOurRow(rows)));
+        assertTrue(store.getCart(USER_ID).isEmpty());
+        assertEquals(0L, store.getStats().get("pendingUsers"));
+    }
+
+    @Test
+    void lineAddedBackWhileItsInsertIsBeingWrittenIsUpdated() throws Exception {
+        store = store(30);
+        whenInserting().thenAnswer(holdThen(insertRows()));
+
+        store.add(USER_ID, product, 1);
+        Thread flush = start(store::flush);
+        assertTrue(writing.await(5, TimeUnit.SECONDS));
+
+        store.clear(USER_ID);
+        store.add(USER_ID, product, 5);
+        release.countDown();
+        flush.join(5000);
+        store.flush();
+
+        // The row inserted by the first flush is updated, not inserted a second time
+        verify(jdbcTemplate, times(1)).batchUpdate(any(PreparedStatementCreator.class),
+                any(BatchPreparedStatementSetter.class), any(KeyHolder.class));
+        verify(jdbcTemplate).batchUpdate(argThat((String sql) -> sql.startsWith("UPDATE")), anyList());
+        verify(jdbcTemplate, never()).batchUpdate(argThat((String sql) -> sql.startsWith("DELETE")), anyList());
+        List<Cart> cart = store.getCart(USER_ID);
+        assertEquals(1, cart.size());
+        assertEquals(5L, cart.get(0).getQuantity());
+        assertNotNull(cart.get(0).getId());
+    }
+
+    @Test
+    void slowCartLoadDoesNotHoldUpUsersOnTheSameStripe() throws Exception {
+        store = store(30);
+        Long neighbour = USER_ID + 64;
+        User other = new User();
+        other.setUserId(neighbour);
+        when(userRepository.findById(neighbour)).thenReturn(Optional.of(other));
+        when(cartRepository.findByUserId(neighbour)).thenReturn(List.of());
+        when(cartRepository.findByUserId(USER_ID)).thenAnswer(invocation -> {
+            writing.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return List.of();
+        });
+
+        Thread slow = start(() -> store.getCart(USER_ID));
+        assertTrue(writing.await(5, TimeUnit.SECONDS));
+
+        Thread quick = start(() -> store.getCart(neighbour));
+        quick.join(2000);
+        assertFalse(quick.isAlive(), "the neighbour's read must not wait for the slow load");
+
+        release.countDown();
+        slow.join(5000);
+        assertEquals(2L, store.getStats().get("residentUsers"));
+    }
+
+    @Test
+    void saveAndEvictForgetsACleanCart() {
+        store = store(30);
+        store.getCart(USER_ID);
+
+        assertTrue(store.saveAndEvict(USER_ID));
+        store.getCart(USER_ID);
+
+        verify(cartRepository, times(2)).findByUserId(USER_ID);
+    }
+
+    @Test
+    void saveAndEvictInsertsAChangedLineWhoseRowWasSwept() {
+        store = store(30);
+        Cart row = new Cart(null, product, 1L);
+        row.setId(50L);
+        row.setCreatedAt(LocalDateTime.now().minusDays(40));
+        row.setUpdatedAt(row.getCreatedAt());
+        when(cartRepository.findByUserId(USER_ID)).thenReturn(List.of(row));
+        // The sweeper has deleted row 50 by the time the change is saved
+        when(jdbcTemplate.queryForList(argThat((String sql) -> sql.startsWith("SELECT product_id")),
+                eq(Long.class), any(Object[].class))).thenReturn(List.of());
+        whenInserting().thenAnswer(insertRows());
+
+        store.add(USER_ID, product, 2);
+        assertTrue(store.saveAndEvict(USER_ID));
+
+        verify(jdbcTemplate).batchUpdate(any(PreparedStatementCreator.class),
+                any(BatchPreparedStatementSetter.class), any(KeyHolder.class));
+        verify(jdbcTemplate, never()).batchUpdate(argThat((String sql) -> sql.startsWith("UPDATE")), anyList());
+        assertEquals(0L, store.getStats().get("pendingUsers"));
+        assertEquals(0L, store.getStats().get("residentUsers"));
+    }
+
+    private WriteBehindCartStore store(long idleMinutes) {
+        // The flusher is scheduled an hour out; the tests flush by hand
+        return new WriteBehindCartStore(jdbcTemplate, mock(PlatformTransactionManager.class), cartRepository,
+                userRepository, productService, mock(ApplicationEventPublisher.class),
+                true, TimeUnit.HOURS.toMillis(1), 200, 2000, idleMinutes);
+    }
+
+    private OngoingStubbing<int[]> whenInserting() {
+        return when(jdbcTemplate.batchUpdate(any(PreparedStatementCreator.class),
+                any(BatchPreparedStatementSetter.class), any(KeyHolder.class)));
+    }
+
+    // Hands out generated keys the way the driver would
+    private Answer<int[]> insertRows() {
+        return invocation -> {
+            BatchPreparedStatementSetter setter = invocation.getArgument(1);
+            KeyHolder keys = invocation.getArgument(2);
+            for (int i = 0; i < setter.getBatchSize(); i++) {
+                keys.getKeyList().add(Map.of("id", nextKey.incrementAndGet()));
+            }
+            return new int[setter.getBatchSize()];
+        };
+    }
+
+    private Answer<int[]> holdThen(Answer<int[]> answer) {
+        return invocation -> {
+            writing.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return answer.answer(invocation);
+        };
+    }
+
+    private boolean isOurRow(List<Object[]> rows) {
+        return rows.size() == 1 && USER_ID.equals(rows.get(0)[0]) && PRODUCT_ID.equals(rows.get(0)[1]);
+    }
+
+    private static Thread start(Runnable action) {
+        Thread thread = new Thread(action);
+        thread.start();
+        return thread;
+    }
+}